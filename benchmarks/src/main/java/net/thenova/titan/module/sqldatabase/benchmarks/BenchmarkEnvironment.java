@@ -0,0 +1,130 @@
+package net.thenova.titan.module.sqldatabase.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import de.arraying.kotys.JSON;
+import de.arraying.lumberjack.LLogger;
+import de.arraying.lumberjack.LLoggerBuilder;
+import net.thenova.titan.module.sqldatabase.settings.ConnectionHandlerSettings;
+import net.thenova.titan.module.sqldatabase.sql.SQLBulkUpsert;
+import net.thenova.titan.module.sqldatabase.sql.SQLConnectionHandler;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+import net.thenova.titan.module.sqldatabase.tables.column.TableColumn;
+import net.thenova.titan.module.sqldatabase.tables.column.data_type.BigInt;
+import net.thenova.titan.module.sqldatabase.tables.column.data_type.Int;
+import net.thenova.titan.module.sqldatabase.tables.column.data_type.Text;
+import net.thenova.titan.module.sqldatabase.tables.column.data_type.Timestamp;
+import net.thenova.titan.module.sqldatabase.tables.column.data_type.VarChar;
+
+import java.util.UUID;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class BenchmarkEnvironment {
+
+    /* Rows inserted before a run, reads pick from these */
+    public static final int ROWS = 10000;
+
+    public static final Database DATABASE = () -> "benchmark";
+
+    static final class BenchmarkTable extends DatabaseTable {
+
+        BenchmarkTable() {
+            super(DATABASE, "benchmark");
+        }
+
+        @Override
+        public void init() {
+            this.registerColumn(
+                    new TableColumn("id", new BigInt()).setPrimary(),
+                    new TableColumn("uuid", new VarChar(VarChar.LENGTH_UUID)),
+                    new TableColumn("name", new VarChar(VarChar.LENGTH_NAME)).setNullable(),
+                    new TableColumn("score", new Int()).setDefault(0),
+                    new TableColumn("data", new Text()).setNullable(),
+                    new TableColumn("updated", new Timestamp()).setNullable()
+            );
+        }
+    }
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Start SQLConnectionHandler against an in-memory H2 database in MySQL mode, the
+     * table is created and filled with {@link #ROWS} rows.
+     *
+     * @param executor - executor value from database.json
+     * @param threads - thread-pool-size
+     * @param connections - max-connections of the pool
+     */
+    public static void start(final String executor, final int threads, final int connections) throws Exception {
+        final ConnectionHandlerSettings settings = new JSON()
+                .put("executor", executor)
+                .put("thread-pool-size", threads)
+                .put("log-mode", "off")
+                .marshal(ConnectionHandlerSettings.class);
+
+        final LLogger logger = LLoggerBuilder.create("sqldatabase-benchmarks")
+                .withThreadPoolSize(1)
+                .build();
+        // Titan is not running here, module messages go to the benchmark logger instead
+        SQLConnectionHandler.INSTANCE.setModuleLogger(logger);
+
+        SQLConnectionHandler.INSTANCE.init(settings, logger);
+        SQLConnectionHandler.INSTANCE.register(DATABASE.name(), BenchmarkEnvironment.source(connections));
+
+        final BenchmarkTable table = new BenchmarkTable();
+        table.build().commit().get();
+
+        final SQLBulkUpsert upsert = table.upsert("id", "uuid", "name", "score", "data", "updated")
+                .update("score");
+        for(int i = 0; i < ROWS; i++) {
+            upsert.row(BenchmarkEnvironment.row(i));
+        }
+        upsert.build()
+                .transaction()
+                .get();
+    }
+
+    /**
+     * Stop SQLConnectionHandler, closing the pool drops the in-memory database
+     */
+    public static void stop() {
+        SQLConnectionHandler.INSTANCE.shutdown();
+    }
+
+    public static Object[] row(final long id) {
+        return new Object[] {
+                id,
+                new UUID(id, id).toString(),
+                "player" + (id % 1000),
+                (int) (id % 100),
+                "benchmark row " + id,
+                new java.sql.Timestamp(1_600_000_000_000L + id)
+        };
+    }
+
+    private static HikariDataSource source(final int connections) {
+        final HikariConfig config = new HikariConfig();
+        config.setPoolName("benchmark");
+        config.setJdbcUrl("jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        config.setMaximumPoolSize(connections);
+        config.setMinimumIdle(connections);
+
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,95 @@
+package net.thenova.titan.module.sqldatabase.benchmarks;
+
+import net.thenova.titan.module.sqldatabase.sql.SQLExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int operations;
+
+    private final Object[] parameters = BenchmarkEnvironment.row(1);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkEnvironment.start("fixed", 4, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkEnvironment.stop();
+    }
+
+    @Benchmark
+    public SQLExecutor construct() {
+        return new SQLExecutor(BenchmarkEnvironment.DATABASE);
+    }
+
+    @Benchmark
+    public SQLExecutor queueUpdates() {
+        final SQLExecutor executor = new SQLExecutor(BenchmarkEnvironment.DATABASE);
+        for(int i = 0; i < this.operations; i++) {
+            executor.queryUpdate("INSERT INTO `benchmark` (`id`, `uuid`, `name`, `score`, `data`, `updated`) VALUES (?, ?, ?, ?, ?, ?)",
+                    this.parameters);
+        }
+
+        return executor;
+    }
+
+    @Benchmark
+    public SQLExecutor queueBatch() {
+        final SQLExecutor executor = new SQLExecutor(BenchmarkEnvironment.DATABASE)
+                .queryBatch("UPDATE `benchmark` SET `score` = ? WHERE `id` = ?");
+        for(int i = 0; i < this.operations; i++) {
+            executor.bind(i, (long) i);
+        }
+
+        return executor;
+    }
+
+    @Benchmark
+    public SQLExecutor merge() {
+        final SQLExecutor executor = new SQLExecutor(BenchmarkEnvironment.DATABASE);
+        for(int i = 0; i < this.operations; i++) {
+            executor.add(new SQLExecutor(BenchmarkEnvironment.DATABASE)
+                    .querySelect("SELECT `score` FROM `benchmark` WHERE `id` = ?", (long) i));
+        }
+
+        return executor;
+    }
+}
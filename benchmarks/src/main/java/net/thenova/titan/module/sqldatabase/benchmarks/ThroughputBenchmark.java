@@ -0,0 +1,114 @@
+package net.thenova.titan.module.sqldatabase.benchmarks;
+
+import net.thenova.titan.module.sqldatabase.sql.SQLExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ThroughputBenchmark {
+
+    private static final String SELECT = "SELECT `id`, `uuid`, `name`, `score` FROM `benchmark` WHERE `id` = ?";
+    private static final String UPDATE = "UPDATE `benchmark` SET `score` = `score` + 1 WHERE `id` = ?";
+
+    @Param({"fixed", "virtual"})
+    private String executor;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    @Param({"2", "8"})
+    private int connections;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkEnvironment.start(this.executor, this.threads, this.connections);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkEnvironment.stop();
+    }
+
+    @Benchmark
+    public void commitSelect(final Blackhole blackhole) throws Exception {
+        new SQLExecutor(BenchmarkEnvironment.DATABASE)
+                .querySelect(SELECT, ThroughputBenchmark.id())
+                .result(res -> ThroughputBenchmark.consume(res, blackhole))
+                .commit()
+                .get();
+    }
+
+    @Benchmark
+    public void commitUpdate() throws Exception {
+        new SQLExecutor(BenchmarkEnvironment.DATABASE)
+                .queryUpdate(UPDATE, ThroughputBenchmark.id())
+                .commit()
+                .get();
+    }
+
+    @Benchmark
+    public void transaction(final Blackhole blackhole) throws Exception {
+        new SQLExecutor(BenchmarkEnvironment.DATABASE)
+                .querySelect(SELECT, ThroughputBenchmark.id())
+                .result(res -> ThroughputBenchmark.consume(res, blackhole))
+                .queryUpdate(UPDATE, ThroughputBenchmark.id())
+                .queryUpdate(UPDATE, ThroughputBenchmark.id())
+                .transaction()
+                .get();
+    }
+
+    /**
+     * Read every column of the selected rows, so the benchmark covers reading results and not only executing
+     */
+    private static void consume(final ResultSet res, final Blackhole blackhole) throws SQLException {
+        while(res.next()) {
+            blackhole.consume(res.getLong(1));
+            blackhole.consume(res.getString(2));
+            blackhole.consume(res.getString(3));
+            blackhole.consume(res.getInt(4));
+        }
+    }
+
+    private static long id() {
+        return ThreadLocalRandom.current().nextInt(BenchmarkEnvironment.ROWS);
+    }
+}
@@ -0,0 +1,115 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import net.thenova.titan.module.sqldatabase.benchmarks.BenchmarkEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+    private final Object[] parameters = BenchmarkEnvironment.row(1);
+    private final Object[] nulls = {1L, "00000000-0000-0001-0000-000000000001", null, 1, null, null};
+    private final SQLParameters typed = new SQLParameters(6);
+    private final String uuid = "00000000-0000-0001-0000-000000000001";
+    private final Timestamp updated = new Timestamp(1_600_000_000_001L);
+
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkEnvironment.start("fixed", 1, 2);
+
+        // Held for the whole trial so only parameter binding is measured, not the pool
+        this.connection = SQLConnectionHandler.INSTANCE.getSource(BenchmarkEnvironment.DATABASE).getConnection();
+        this.statement = this.connection.prepareStatement(
+                "INSERT INTO `benchmark` (`id`, `uuid`, `name`, `score`, `data`, `updated`) VALUES (?, ?, ?, ?, ?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.statement.close();
+        this.connection.close();
+
+        BenchmarkEnvironment.stop();
+    }
+
+    @Benchmark
+    public PreparedStatement bind() throws SQLException {
+        SQLParameters.apply(this.statement, this.parameters);
+
+        return this.statement;
+    }
+
+    @Benchmark
+    public PreparedStatement bindNulls() throws SQLException {
+        SQLParameters.apply(this.statement, this.nulls);
+
+        return this.statement;
+    }
+
+    @Benchmark
+    public PreparedStatement bindTyped() throws SQLException {
+        this.typed.clear()
+                .bindLong(1L)
+                .bindString(this.uuid)
+                .bindString("player1")
+                .bindInt(1)
+                .bindString("benchmark row 1")
+                .bindTimestamp(this.updated);
+        this.typed.apply(this.statement);
+
+        return this.statement;
+    }
+
+    @Benchmark
+    public PreparedStatement bindTypedNulls() throws SQLException {
+        this.typed.clear()
+                .bindLong(1L)
+                .bindString(this.uuid)
+                .bindNull(Types.VARCHAR)
+                .bindInt(1)
+                .bindNull(Types.VARCHAR)
+                .bindNull(Types.TIMESTAMP);
+        this.typed.apply(this.statement);
+
+        return this.statement;
+    }
+}
@@ -1,6 +1,5 @@
 package net.thenova.titan.module.sqldatabase.loader;
 
-import net.thenova.titan.Titan;
 import net.thenova.titan.module.module.ModuleInstance;
 import net.thenova.titan.module.module.expansion.Expansion;
 import net.thenova.titan.module.module.expansion.ExpansionLoader;
@@ -37,11 +36,17 @@ public final class ExpansionLoaderSQLDatabase implements ExpansionLoader {
     public boolean enable(final ModuleInstance instance, final Expansion expansion) {
         final ExpansionSQLDatabase sqlExpansion = (ExpansionSQLDatabase) expansion;
         if(sqlExpansion.database() == null && sqlExpansion.tables() == null) {
-            Titan.INSTANCE.getLogger().debug("[ExpansionLoaderSQLDatabase] - Module '%s' was an instance of SQLDatabaseModule but both database and tables were null", instance.getDescriptionFile().getName());
+            SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[ExpansionLoaderSQLDatabase] - Module '%s' was an instance of SQLDatabaseModule but both database and tables were null", instance.getDescriptionFile().getName());
             return true;
         }
 
+        final String owner = instance.getDescriptionFile().getName();
+        SQLConnectionHandler.INSTANCE.registerModule(expansion.getClass().getClassLoader(), owner);
+        if(sqlExpansion.database() != null) {
+            SQLConnectionHandler.INSTANCE.registerOwner(sqlExpansion.database(), owner);
+        }
         if(sqlExpansion.tables() != null) {
+            sqlExpansion.tables().forEach(table -> SQLConnectionHandler.INSTANCE.registerOwner(table.getDatabase(), owner));
             SQLConnectionHandler.INSTANCE.createTables(sqlExpansion.tables());
         }
         return true;
@@ -54,6 +59,6 @@ public final class ExpansionLoaderSQLDatabase implements ExpansionLoader {
 
     @Override
     public void unload(final ModuleInstance instance, final Expansion expansion) {
-
+        SQLConnectionHandler.INSTANCE.unregisterModule(expansion.getClass().getClassLoader());
     }
 }
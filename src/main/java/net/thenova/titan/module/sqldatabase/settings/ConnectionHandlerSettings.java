@@ -0,0 +1,47 @@
+package net.thenova.titan.module.sqldatabase.settings;
+
+import de.arraying.kotys.JSONField;
+import lombok.Getter;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@SuppressWarnings("FieldMayBeFinal")
+@Getter
+public final class ConnectionHandlerSettings {
+
+    @JSONField(key = "executor") private String executor = "fixed";
+    @JSONField(key = "thread-pool-size") private int threadPoolSize = 4;
+    @JSONField(key = "debug-to-console") private boolean debugToConsole = false;
+    @JSONField(key = "log-mode") private String logMode = "slow";
+    @JSONField(key = "log-slow-threshold") private long logSlowThreshold = 100;
+    @JSONField(key = "log-sample-rate") private int logSampleRate = 100;
+    @JSONField(key = "explain-mode") private String explainMode = "off";
+    @JSONField(key = "explain-slow-threshold") private long explainSlowThreshold = 500;
+    @JSONField(key = "explain-sample-rate") private int explainSampleRate = 1000;
+    @JSONField(key = "batch-size") private int batchSize = 1000;
+    @JSONField(key = "stream-fetch-size") private int streamFetchSize = 1000;
+    @JSONField(key = "schema-fingerprints") private boolean schemaFingerprints = true;
+    @JSONField(key = "schema-migration") private String schemaMigration = "off";
+    @JSONField(key = "schema-migration-chunk-size") private int schemaMigrationChunkSize = 1000;
+    @JSONField(key = "schema-migration-throttle") private long schemaMigrationThrottle = 50;
+    @JSONField(key = "partition-maintenance-interval") private long partitionMaintenanceInterval = 3600000;
+    @JSONField(key = "lazy-pools") private boolean lazyPools = false;
+    @JSONField(key = "pool-init-timeout") private long poolInitTimeout = 30000;
+
+    @JSONField(key = "result-cache") private boolean resultCache = false;
+    @JSONField(key = "result-cache-size") private long resultCacheSize = 10000;
+    @JSONField(key = "result-cache-ttl") private long resultCacheTtl = 30000;
+}
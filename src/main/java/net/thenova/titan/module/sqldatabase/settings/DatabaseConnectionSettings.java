@@ -4,7 +4,7 @@ import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.pool.HikariPool;
 import de.arraying.kotys.JSONField;
 import lombok.Getter;
-import net.thenova.titan.Titan;
+import net.thenova.titan.module.sqldatabase.sql.SQLConnectionHandler;
 import net.thenova.titan.module.sqldatabase.sql.SQLDatabaseException;
 
 import java.sql.SQLException;
@@ -34,8 +34,45 @@ public final class DatabaseConnectionSettings {
     @JSONField(key = "user") private String user = "user";
     @JSONField(key = "password") private String password = "password";
     @JSONField(key = "max-connections") private int maxConnections = 5;
+    @JSONField(key = "minimum-idle") private int minimumIdle = 2;
+    @JSONField(key = "idle-timeout") private long idleTimeout = 600000;
+    @JSONField(key = "max-lifetime") private long maxLifetime = 1800000;
+    @JSONField(key = "connection-timeout") private long connectionTimeout = 30000;
+    @JSONField(key = "leak-detection-threshold") private long leakDetectionThreshold = 0;
+    @JSONField(key = "lane-concurrency") private int laneConcurrency = 0;
+    @JSONField(key = "lane-queue-capacity") private int laneQueueCapacity = 1000;
+    @JSONField(key = "lane-overflow") private String laneOverflow = "reject";
+    @JSONField(key = "lane-block-timeout") private long laneBlockTimeout = 1000;
+    @JSONField(key = "lane-target-delay") private long laneTargetDelay = 0;
+    @JSONField(key = "lane-delay-interval") private long laneDelayInterval = 5000;
+    @JSONField(key = "rewrite-batched-statements") private boolean rewriteBatchedStatements = false;
+    @JSONField(key = "pipelining") private boolean pipelining = false;
+
+    @JSONField(key = "write-behind") private boolean writeBehind = false;
+    @JSONField(key = "write-behind-max-pending") private int writeBehindMaxPending = 1000;
+    @JSONField(key = "write-behind-interval") private long writeBehindInterval = 1000;
+
+    @JSONField(key = "replica-max-lag") private long replicaMaxLag = 5;
+    @JSONField(key = "replica-check-interval") private long replicaCheckInterval = 5000;
+
+    @JSONField(key = "adaptive-pool") private boolean adaptivePool = false;
+    @JSONField(key = "adaptive-pool-interval") private long adaptivePoolInterval = 5000;
+    @JSONField(key = "adaptive-pool-wait-target") private long adaptivePoolWaitTarget = 5;
+    @JSONField(key = "adaptive-pool-max") private int adaptivePoolMax = 0;
 
     public final HikariDataSource build(final String key) throws SQLDatabaseException {
+        return this.build(key, false);
+    }
+
+    /**
+     * Build the HikariDataSource for this entry
+     *
+     * @param key - Pool name suffix
+     * @param readOnly - Whether connections are read only, used for replicas
+     * @return - HikariDataSource
+     * @throws SQLDatabaseException - Thrown when no connection could be established
+     */
+    public final HikariDataSource build(final String key, final boolean readOnly) throws SQLDatabaseException {
         final HikariDataSource source = new HikariDataSource();
 
         source.setDriverClassName("org.mariadb.jdbc.Driver");
@@ -44,12 +81,14 @@ public final class DatabaseConnectionSettings {
         source.setUsername(this.user);
         source.setPassword(this.password);
 
-        source.setIdleTimeout(20000);
-        source.setMaxLifetime(60000);
-        source.setMinimumIdle(1);
+        source.setIdleTimeout(this.idleTimeout);
+        source.setMaxLifetime(this.maxLifetime);
+        source.setConnectionTimeout(this.connectionTimeout);
+        source.setMinimumIdle(Math.min(this.minimumIdle, this.maxConnections));
         source.setMaximumPoolSize(this.maxConnections);
+        source.setReadOnly(readOnly);
 
-        source.setLeakDetectionThreshold(4000L);
+        source.setLeakDetectionThreshold(this.leakDetectionThreshold);
         source.addDataSourceProperty("useSSL", "false");
         source.addDataSourceProperty("useUnicode", "true");
         source.addDataSourceProperty("characterEncoding", "utf-8");
@@ -60,9 +99,16 @@ public final class DatabaseConnectionSettings {
         source.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         source.addDataSourceProperty("useServerPrepStmts", "true");
 
+        // Bulk protocol keeps server-side prepared statements, rewriting trades them for multi-value inserts
+        source.addDataSourceProperty("useBulkStmts", "true");
+        source.addDataSourceProperty("rewriteBatchedStatements", String.valueOf(this.rewriteBatchedStatements));
+
+        // Multi-statement packets let an executor send every queued statement in a single round trip
+        source.addDataSourceProperty("allowMultiQueries", String.valueOf(this.pipelining));
+
         try {
             source.getConnection().close();
-            Titan.INSTANCE.getLogger().debug("[DatabaseConnectionSettings] - Connection has successfully been established for '%s'.", key);
+            SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[DatabaseConnectionSettings] - Connection has successfully been established for '%s'.", key);
         } catch (final HikariPool.PoolInitializationException | SQLException ex) {
             throw new SQLDatabaseException("Connection failed to establish for '" + key + "'", ex);
         }
@@ -0,0 +1,177 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import net.thenova.titan.module.sqldatabase.settings.DatabaseConnectionSettings;
+import net.thenova.titan.module.sqldatabase.sql.metrics.LatencySnapshot;
+import net.thenova.titan.module.sqldatabase.sql.metrics.SQLPhase;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class AdaptivePoolSizer {
+
+    /* Quiet checks in a row before the pool shrinks by a connection */
+    private static final int COOLDOWN = 12;
+    /* Share of the server's max_connections left for other clients */
+    private static final double SERVER_RESERVE = 0.1;
+
+    private final String database;
+    private final HikariDataSource source;
+    private final int floor;
+    private final int base;
+    private final int ceiling;
+    private final long waitTarget;
+
+    private long acquired;
+    private long waited;
+    private int quiet;
+
+    private ScheduledFuture<?> task;
+
+    /**
+     * @param serverMaxConnections max_connections of the server, read once when the pool is loaded, 0 when unknown
+     */
+    AdaptivePoolSizer(final String database, final HikariDataSource source, final DatabaseConnectionSettings settings, final int serverMaxConnections) {
+        this.database = database;
+        this.source = source;
+        this.floor = Math.max(1, Math.min(settings.getMinimumIdle(), settings.getMaxConnections()));
+        this.base = Math.max(this.floor, settings.getMaxConnections());
+
+        // Pools start at max-connections, adaptive-pool-max leaves room to grow past it within the server's limit
+        int ceiling = settings.getAdaptivePoolMax() > 0 ? settings.getAdaptivePoolMax() : settings.getMaxConnections() * 2;
+        if(serverMaxConnections > 0) {
+            ceiling = Math.min(ceiling, (int) (serverMaxConnections * (1 - SERVER_RESERVE)));
+        }
+        this.ceiling = Math.max(this.base, ceiling);
+        this.waitTarget = TimeUnit.MILLISECONDS.toNanos(settings.getAdaptivePoolWaitTarget());
+    }
+
+    /**
+     * @return Largest size the pool grows to
+     */
+    final int getCeiling() {
+        return this.ceiling;
+    }
+
+    /**
+     * Resize the pool at a fixed interval on the handler scheduler
+     *
+     * @param interval Milliseconds between checks
+     */
+    final synchronized void schedule(final long interval) {
+        this.cancel();
+        this.task = SQLConnectionHandler.INSTANCE.getScheduler()
+                .scheduleWithFixedDelay(this::resize, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    final synchronized void cancel() {
+        if(this.task != null) {
+            this.task.cancel(false);
+            this.task = null;
+        }
+    }
+
+    /**
+     * Grow the pool while callers wait on a connection and shrink it one connection at a time
+     * once it has been quiet for {@link #COOLDOWN} checks. The maximum stays between max-connections and
+     * adaptive-pool-max, so a quiet pool still takes a burst of max-connections at once, and minimum-idle
+     * shrinks back to its setting.
+     * The pool only grows once every connection it may open is open and busy, read from the pool counts so
+     * no connection is borrowed to decide.
+     */
+    private void resize() {
+        final HikariPoolMXBean pool = this.source.getHikariPoolMXBean();
+        final HikariConfigMXBean config = this.source.getHikariConfigMXBean();
+        if(pool == null || config == null) {
+            return;
+        }
+
+        final int waiting = pool.getThreadsAwaitingConnection();
+        final int active = pool.getActiveConnections();
+        final int idle = pool.getIdleConnections();
+        final int total = pool.getTotalConnections();
+        final long wait = this.meanWait();
+        final int max = config.getMaximumPoolSize();
+        final int min = config.getMinimumIdle();
+
+        int resizedMax = max;
+        int resizedMin = min;
+        if(waiting > 0 || wait > this.waitTarget) {
+            this.quiet = 0;
+
+            // Idle connections or connections still opening serve the waiting callers without growing
+            if(idle == 0 && total >= max) {
+                resizedMax = Math.max(max, Math.min(this.ceiling, max + Math.max(1, waiting)));
+            }
+            // Keep connections for the demand just seen open between bursts
+            resizedMin = Math.min(resizedMax, Math.max(min, active + waiting));
+        } else {
+            if(++this.quiet >= COOLDOWN) {
+                this.quiet = 0;
+
+                resizedMax = Math.max(Math.max(this.base, active), max - 1);
+                resizedMin = Math.min(resizedMax, Math.max(this.floor, min - 1));
+            }
+        }
+
+        if(resizedMax == max && resizedMin == min) {
+            return;
+        }
+
+        // Raise the maximum first so minimum-idle never exceeds it
+        if(resizedMax > max) {
+            config.setMaximumPoolSize(resizedMax);
+            config.setMinimumIdle(resizedMin);
+        } else {
+            config.setMinimumIdle(resizedMin);
+            config.setMaximumPoolSize(resizedMax);
+        }
+
+        SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[AdaptivePoolSizer] - Resized '%s' from %d-%d to %d-%d, active: %d, idle: %d, waiting: %d, mean wait: %dus",
+                this.database, min, max, resizedMin, resizedMax, active, idle, waiting, TimeUnit.NANOSECONDS.toMicros(wait));
+    }
+
+    /**
+     * @return Mean connection wait in nanoseconds since the last check
+     */
+    private long meanWait() {
+        final LatencySnapshot snapshot = SQLConnectionHandler.INSTANCE.getMetrics()
+                .database(this.database)
+                .get(SQLPhase.ACQUIRE);
+        if(snapshot == null) {
+            return 0;
+        }
+
+        final long acquired = snapshot.getCount();
+        final long waited = snapshot.getCount() * snapshot.getMean();
+        if(acquired < this.acquired) {
+            // Metrics were reset
+            this.acquired = 0;
+            this.waited = 0;
+        }
+
+        final long count = acquired - this.acquired;
+        final long mean = count <= 0 ? 0 : Math.max(0, waited - this.waited) / count;
+        this.acquired = acquired;
+        this.waited = waited;
+
+        return mean;
+    }
+}
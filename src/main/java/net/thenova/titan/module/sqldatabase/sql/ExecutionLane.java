@@ -0,0 +1,238 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.Getter;
+import net.thenova.titan.module.sqldatabase.settings.DatabaseConnectionSettings;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ExecutionLane {
+
+    public enum Overflow {
+        /* Fail the new executor */
+        REJECT,
+        /* Fail the oldest queued executor of the lowest priority class at or below the new one */
+        DROP_OLDEST,
+        /* Block the caller until there is space, failing the new executor after lane-block-timeout */
+        BLOCK;
+
+        public static Overflow parse(final String name) {
+            for(final Overflow overflow : Overflow.values()) {
+                if(overflow.name().replace('_', '-').equalsIgnoreCase(name)) {
+                    return overflow;
+                }
+            }
+
+            return REJECT;
+        }
+    }
+
+    @Getter private final String database;
+    @Getter private volatile int concurrency;
+    @Getter private final int capacity;
+    @Getter private final Overflow overflow;
+    private final long blockTimeout;
+    /* Whether concurrency follows the connections of the database, false when lane-concurrency is set */
+    private final boolean sized;
+
+    private final FairQueue queue;
+    private final ThreadPoolExecutor pool;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Isolated executor for a single database, a slow database can only fill its own lane
+     *
+     * @param database Database name
+     * @param mode ExecutorMode deciding whether lane threads are platform or virtual threads
+     * @param settings DatabaseConnectionSettings of the database
+     * @param connections Connections executors of the lane can use, the primary pool at its largest and every replica pool
+     */
+    ExecutionLane(final String database, final ExecutorMode mode, final DatabaseConnectionSettings settings, final int connections) {
+        this.database = database;
+        this.sized = settings.getLaneConcurrency() <= 0;
+        this.concurrency = Math.max(1, this.sized ? connections : settings.getLaneConcurrency());
+        this.capacity = Math.max(1, settings.getLaneQueueCapacity());
+        this.overflow = Overflow.parse(settings.getLaneOverflow());
+        this.blockTimeout = TimeUnit.MILLISECONDS.toNanos(settings.getLaneBlockTimeout());
+
+        final String name = "titan-sqldatabase-" + database;
+        final ThreadFactory factory = mode.threadFactory(name);
+
+        this.queue = new FairQueue(database,
+                this.capacity,
+                this.concurrency,
+                SQLConnectionHandler.INSTANCE::getOwnerWeight,
+                this.overflow == Overflow.DROP_OLDEST,
+                settings.getLaneTargetDelay(),
+                settings.getLaneDelayInterval());
+        this.pool = new ThreadPoolExecutor(this.concurrency, this.concurrency, 60L, TimeUnit.SECONDS,
+                this.queue,
+                factory == null ? ExecutorMode.FIXED.threadFactory(name) : factory);
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submit an executor to the lane, it waits behind queued executors of higher priority classes
+     * and takes turns with executors of other owners in its class
+     *
+     * @param priority SQLPriority
+     * @param owner Module the executor is run for
+     * @param task Callable
+     * @param <T> Result type
+     * @return ListenableFuture, failed with SQLDatabaseException when the lane queue is full, dropped or shed
+     */
+    final <T> ListenableFuture<T> submit(final SQLPriority priority, final String owner, final Callable<T> task) {
+        final SQLTask<T> queued = new SQLTask<>(priority, owner, task, this.queue);
+        final long deadline = System.nanoTime() + this.blockTimeout;
+
+        while(true) {
+            try {
+                this.pool.execute(queued);
+
+                return queued.getFuture();
+            } catch (final RejectedExecutionException ex) {
+                if(this.overflow == Overflow.BLOCK && !this.pool.isShutdown()) {
+                    try {
+                        if(this.queue.awaitSpace(deadline - System.nanoTime()) > 0) {
+                            continue;
+                        }
+                    } catch (final InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                this.rejected.increment();
+                return Futures.immediateFailedFuture(new SQLDatabaseException("Execution lane for '" + this.database
+                        + "' rejected an executor, " + this.capacity + " already queued", ex));
+            }
+        }
+    }
+
+    /**
+     * Change the threads of the lane when the connections of its database change, unless lane-concurrency is set
+     *
+     * @param connections Connections executors of the lane can use
+     */
+    final synchronized void resize(final int connections) {
+        final int concurrency = Math.max(1, connections);
+        if(!this.sized || concurrency == this.concurrency) {
+            return;
+        }
+
+        // Keep core threads at or below the maximum while both change
+        if(concurrency > this.concurrency) {
+            this.pool.setMaximumPoolSize(concurrency);
+            this.pool.setCorePoolSize(concurrency);
+        } else {
+            this.pool.setCorePoolSize(concurrency);
+            this.pool.setMaximumPoolSize(concurrency);
+        }
+        this.queue.setConcurrency(concurrency);
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return Executors waiting for a lane thread
+     */
+    public final int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * @param priority SQLPriority
+     * @return Executors of a priority class waiting for a lane thread
+     */
+    public final int getQueueDepth(final SQLPriority priority) {
+        return this.queue.queued(priority);
+    }
+
+    /**
+     * @return Executors currently running
+     */
+    public final int getActive() {
+        return this.pool.getActiveCount();
+    }
+
+    /**
+     * @return Executors completed since the lane was created
+     */
+    public final long getCompleted() {
+        return this.pool.getCompletedTaskCount();
+    }
+
+    /**
+     * @return Executors rejected because the queue was full
+     */
+    public final long getRejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * @return Queued executors dropped to make space for newer ones
+     */
+    public final long getDropped() {
+        return this.queue.getDropped();
+    }
+
+    /**
+     * @return Queued executors shed for waiting longer than lane-target-delay
+     */
+    public final long getShed() {
+        return this.queue.getShed();
+    }
+
+    /**
+     * Stop accepting executors, queued ones still run
+     */
+    final void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Wait for queued executors to finish, cancelling them once the timeout passes
+     *
+     * @param timeout Milliseconds
+     */
+    final void awaitTermination(final long timeout) {
+        try {
+            if(!this.pool.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                this.cancel();
+            }
+        } catch (final InterruptedException ex) {
+            this.cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop running executors and cancel the futures of queued ones so callers are not left waiting
+     */
+    private void cancel() {
+        this.pool.shutdownNow().forEach(runnable -> {
+            if(runnable instanceof SQLTask) {
+                ((SQLTask<?>) runnable).getFuture().cancel(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public enum ExecutorMode {
+
+    /**
+     * Fixed amount of platform threads, thread-pool-size in database.json
+     */
+    FIXED {
+        @Override
+        public ExecutorService create(final String name, final int threads) {
+            return Executors.newFixedThreadPool(Math.max(1, threads), this.threadFactory(name));
+        }
+
+        @Override
+        public ThreadFactory threadFactory(final String name) {
+            return new ThreadFactoryBuilder().setNameFormat(name + "-%d").build();
+        }
+    },
+
+    /**
+     * Platform threads created as needed and reused while idle
+     */
+    CACHED {
+        @Override
+        public ExecutorService create(final String name, final int threads) {
+            return Executors.newCachedThreadPool(this.threadFactory(name));
+        }
+
+        @Override
+        public ThreadFactory threadFactory(final String name) {
+            return FIXED.threadFactory(name);
+        }
+    },
+
+    /**
+     * A virtual thread per task on Java 21+, execution lanes then run on virtual threads.
+     * Falls back to FIXED on older runtimes.
+     */
+    VIRTUAL {
+        @Override
+        public ExecutorService create(final String name, final int threads) {
+            final ThreadFactory factory = this.threadFactory(name);
+            if(factory != null) {
+                try {
+                    final Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                    return (ExecutorService) method.invoke(null, factory);
+                } catch (final ReflectiveOperationException ignored) {}
+            }
+
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[ExecutorMode] - Virtual threads are not available on Java %s, using fixed thread pool",
+                    System.getProperty("java.version"));
+            return FIXED.create(name, threads);
+        }
+
+        @Override
+        public ThreadFactory threadFactory(final String name) {
+            try {
+                final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                final Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+                final Object named = builder.getMethod("name", String.class, long.class).invoke(virtual, name + "-", 0L);
+
+                return (ThreadFactory) builder.getMethod("factory").invoke(named);
+            } catch (final ReflectiveOperationException ex) {
+                return null;
+            }
+        }
+    };
+
+    /**
+     * Create the shared ExecutorService, SQLExecutors run on the execution lane of their database
+     *
+     * @param name Thread name prefix
+     * @param threads Thread count for bounded modes
+     * @return ExecutorService
+     */
+    public abstract ExecutorService create(final String name, final int threads);
+
+    /**
+     * @param name Thread name prefix
+     * @return ThreadFactory for this mode, null when unavailable on this runtime
+     */
+    public abstract ThreadFactory threadFactory(final String name);
+
+    /**
+     * Parse the executor value from database.json
+     *
+     * @param name String
+     * @return ExecutorMode, FIXED when unknown
+     */
+    public static ExecutorMode parse(final String name) {
+        for(final ExecutorMode mode : ExecutorMode.values()) {
+            if(mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+
+        return FIXED;
+    }
+}
@@ -0,0 +1,688 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class FairQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /**
+     * Module owning executors, shared by every priority class
+     */
+    private static final class Owner {
+        private final String name;
+        private int queued;
+        private int running;
+
+        private Owner(final String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Executors of one owner within one priority class
+     */
+    private static final class Slot {
+        private final Owner owner;
+        private final ArrayDeque<SQLTask<?>> tasks = new ArrayDeque<>();
+        private int deficit;
+
+        private Slot(final Owner owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Priority class, owners with queued executors take turns in active
+     */
+    private static final class Band {
+        private final SQLPriority priority;
+        private final Map<String, Slot> slots = new HashMap<>();
+        private final ArrayDeque<Slot> active = new ArrayDeque<>();
+        private int queued;
+        private int running;
+        private int credit;
+
+        /* CoDel state, see RFC 8289. Kept per class, so short waits of interactive executors do not hide long waits of bulk ones */
+        private long firstAbove;
+        private boolean dropping;
+        private long dropNext;
+        private int dropCount;
+
+        private Band(final SQLPriority priority) {
+            this.priority = priority;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = this.lock.newCondition();
+    private final Condition space = this.lock.newCondition();
+
+    private final Band[] bands;
+    private final Map<String, Owner> owners = new HashMap<>();
+    private final ToIntFunction<String> weights;
+    private final int capacity;
+    /* Executors a single owner or the bulk class may run at once while others have work queued */
+    private int share;
+
+    private final String database;
+    private final boolean dropOldest;
+    /* CoDel target and interval in nanoseconds, shedding is disabled when target is 0 */
+    private final long target;
+    private final long interval;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    private int count;
+
+    /**
+     * @param database Database name, used in rejection messages
+     * @param capacity Executors queued before offers are refused
+     * @param concurrency Threads taking from the queue
+     * @param weights Weight of each owner, executors taken from an owner per turn
+     * @param dropOldest Whether a full queue drops its oldest executor of the lowest priority class rather than refusing
+     * @param target Milliseconds executors may wait before the queue counts as backed up, 0 to never shed
+     * @param interval Milliseconds the wait must stay above target before executors are shed
+     */
+    FairQueue(final String database, final int capacity, final int concurrency, final ToIntFunction<String> weights,
+              final boolean dropOldest, final long target, final long interval) {
+        this.database = database;
+        this.capacity = capacity;
+        this.share = Math.max(1, concurrency - 1);
+        this.weights = weights;
+        this.dropOldest = dropOldest;
+        this.target = TimeUnit.MILLISECONDS.toNanos(target);
+        this.interval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, interval));
+
+        final SQLPriority[] priorities = SQLPriority.values();
+        this.bands = new Band[priorities.length];
+        for(int i = 0; i < priorities.length; i++) {
+            this.bands[i] = new Band(priorities[i]);
+        }
+    }
+
+    /**
+     * Follow a change of the threads taking from the queue
+     *
+     * @param concurrency Threads taking from the queue
+     */
+    final void setConcurrency(final int concurrency) {
+        this.lock.lock();
+        try {
+            this.share = Math.max(1, concurrency - 1);
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final boolean offer(final Runnable runnable) {
+        final SQLTask<?> task = runnable instanceof SQLTask
+                ? (SQLTask<?>) runnable
+                : new SQLTask<>(SQLPriority.NORMAL, "", Executors.callable(runnable), this);
+
+        SQLTask<?> victim = null;
+        this.lock.lock();
+        try {
+            if(this.count >= this.capacity) {
+                if(!this.dropOldest || (victim = this.oldest(task.getPriority())) == null) {
+                    return false;
+                }
+            }
+
+            task.queued();
+            this.enqueue(task);
+            this.available.signal();
+
+            return true;
+        } finally {
+            this.lock.unlock();
+
+            if(victim != null) {
+                this.dropped.increment();
+                victim.reject(new SQLDatabaseException("Execution lane for '" + this.database
+                        + "' is full, dropped the oldest " + victim.getPriority().name().toLowerCase() + " executor"));
+            }
+        }
+    }
+
+    /**
+     * Wait until the queue has space for another executor
+     *
+     * @param nanos Longest wait
+     * @return Nanoseconds left of the wait, 0 or less when it ran out
+     * @throws InterruptedException Thrown when interrupted while waiting
+     */
+    final long awaitSpace(final long nanos) throws InterruptedException {
+        long remaining = nanos;
+
+        this.lock.lockInterruptibly();
+        try {
+            while(this.count >= this.capacity && remaining > 0) {
+                remaining = this.space.awaitNanos(remaining);
+            }
+
+            return remaining;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final boolean offer(final Runnable runnable, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while(!this.offer(runnable)) {
+            if(this.awaitSpace(deadline - System.nanoTime()) <= 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public final void put(final Runnable runnable) throws InterruptedException {
+        while(!this.offer(runnable)) {
+            this.awaitSpace(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public final Runnable take() throws InterruptedException {
+        final List<SQLTask<?>> shed = new ArrayList<>();
+
+        this.lock.lockInterruptibly();
+        try {
+            SQLTask<?> task;
+            while((task = this.dequeue(shed)) == null) {
+                this.available.await();
+            }
+
+            return task;
+        } finally {
+            this.lock.unlock();
+            this.shed(shed);
+        }
+    }
+
+    @Override
+    public final Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final List<SQLTask<?>> shed = new ArrayList<>();
+        long nanos = unit.toNanos(timeout);
+
+        this.lock.lockInterruptibly();
+        try {
+            SQLTask<?> task;
+            while((task = this.dequeue(shed)) == null) {
+                if(nanos <= 0) {
+                    return null;
+                }
+                nanos = this.available.awaitNanos(nanos);
+            }
+
+            return task;
+        } finally {
+            this.lock.unlock();
+            this.shed(shed);
+        }
+    }
+
+    @Override
+    public final Runnable poll() {
+        final List<SQLTask<?>> shed = new ArrayList<>();
+
+        this.lock.lock();
+        try {
+            return this.dequeue(shed);
+        } finally {
+            this.lock.unlock();
+            this.shed(shed);
+        }
+    }
+
+    @Override
+    public final Runnable peek() {
+        this.lock.lock();
+        try {
+            for(final Band band : this.bands) {
+                if(!band.active.isEmpty()) {
+                    return band.active.peekFirst().tasks.peekFirst();
+                }
+            }
+
+            return null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final boolean remove(final Object object) {
+        if(!(object instanceof SQLTask)) {
+            return false;
+        }
+
+        final SQLTask<?> task = (SQLTask<?>) object;
+        this.lock.lock();
+        try {
+            final Band band = this.bands[task.getPriority().ordinal()];
+            final Slot slot = band.slots.get(task.getOwner());
+            if(slot == null || !slot.tasks.remove(task)) {
+                return false;
+            }
+
+            this.removed(band, slot);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final int size() {
+        this.lock.lock();
+        try {
+            return this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public final int remainingCapacity() {
+        this.lock.lock();
+        try {
+            return this.capacity - this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Iterate a snapshot of the queued executors, so the lock is not held while iterating. Removing through the
+     * iterator removes the executor from the queue when it is still queued.
+     */
+    @Override
+    public final Iterator<Runnable> iterator() {
+        final Iterator<Runnable> snapshot = this.snapshot().iterator();
+
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                return this.last = snapshot.next();
+            }
+
+            @Override
+            public void remove() {
+                if(this.last == null) {
+                    throw new IllegalStateException();
+                }
+
+                FairQueue.this.remove(this.last);
+                this.last = null;
+            }
+        };
+    }
+
+    @Override
+    public final Object[] toArray() {
+        return this.snapshot().toArray();
+    }
+
+    @Override
+    public final <T> T[] toArray(final T[] array) {
+        return this.snapshot().toArray(array);
+    }
+
+    @Override
+    public final int drainTo(final Collection<? super Runnable> collection) {
+        return this.drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public final int drainTo(final Collection<? super Runnable> collection, final int max) {
+        this.lock.lock();
+        try {
+            int drained = 0;
+            for(final Band band : this.bands) {
+                while(drained < max && !band.active.isEmpty()) {
+                    final Slot slot = band.active.peekFirst();
+                    collection.add(slot.tasks.pollFirst());
+                    this.removed(band, slot);
+                    drained++;
+                }
+            }
+
+            return drained;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority SQLPriority
+     * @return Executors of the class waiting for a thread
+     */
+    final int queued(final SQLPriority priority) {
+        this.lock.lock();
+        try {
+            return this.bands[priority.ordinal()].queued;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Count an executor as running for its owner and class, called by the lane thread before it runs
+     *
+     * @param task SQLTask
+     */
+    final void started(final SQLTask<?> task) {
+        this.lock.lock();
+        try {
+            this.owner(task.getOwner()).running++;
+            this.bands[task.getPriority().ordinal()].running++;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Release the running count of an executor, waking threads waiting on an owner or class limit
+     *
+     * @param task SQLTask
+     */
+    final void finished(final SQLTask<?> task) {
+        this.lock.lock();
+        try {
+            final Owner owner = this.owner(task.getOwner());
+            owner.running--;
+            this.bands[task.getPriority().ordinal()].running--;
+
+            if(owner.running == 0 && owner.queued == 0) {
+                this.owners.remove(owner.name);
+            }
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void enqueue(final SQLTask<?> task) {
+        final Band band = this.bands[task.getPriority().ordinal()];
+        final Owner owner = this.owner(task.getOwner());
+        final Slot slot = band.slots.computeIfAbsent(owner.name, name -> new Slot(owner));
+
+        if(slot.tasks.isEmpty()) {
+            band.active.addLast(slot);
+        }
+        slot.tasks.addLast(task);
+
+        owner.queued++;
+        band.queued++;
+        this.count++;
+    }
+
+    /**
+     * Pick the next executor. Classes are served by weight, so interactive work goes first without starving
+     * bulk work, and owners within a class take turns of their weight. An owner, or the bulk class, holding all
+     * but one thread is skipped while something else can run, keeping a thread free for other modules. When
+     * nothing else can run the first skipped executor runs, so a thread never waits while executors are queued.
+     *
+     * @param shed Executors shed for waiting too long are added to this, to be failed once the lock is released
+     * @return SQLTask, null when nothing can run right now
+     */
+    private SQLTask<?> dequeue(final List<SQLTask<?>> shed) {
+        SQLTask<?> task;
+        while((task = this.select()) != null && this.shed(task, System.nanoTime())) {
+            shed.add(task);
+        }
+
+        return task;
+    }
+
+    private SQLTask<?> select() {
+        if(this.count == 0) {
+            return null;
+        }
+
+        final SQLTask<?> task = this.select(true);
+
+        // Skipped slots are rotated back to the front of their class, so this takes the first one skipped
+        return task != null ? task : this.select(false);
+    }
+
+    /**
+     * @param limited Whether owners and the bulk class are held to their share of threads
+     * @return SQLTask, null when nothing can run within the limits
+     */
+    private SQLTask<?> select(final boolean limited) {
+        for(int pass = 0; pass < 2; pass++) {
+            for(final Band band : this.bands) {
+                if(band.credit <= 0 || band.active.isEmpty()) {
+                    continue;
+                }
+                if(limited && band.running >= this.share && band.priority == SQLPriority.BULK && this.count > band.queued) {
+                    continue;
+                }
+
+                final SQLTask<?> task = this.next(band, limited);
+                if(task != null) {
+                    band.credit--;
+                    return task;
+                }
+            }
+
+            for(final Band band : this.bands) {
+                band.credit = band.priority.getWeight();
+            }
+        }
+
+        return null;
+    }
+
+    private SQLTask<?> next(final Band band, final boolean limited) {
+        for(int i = 0, size = band.active.size(); i < size; i++) {
+            final Slot slot = band.active.peekFirst();
+            if(limited && slot.owner.running >= this.share && this.count > slot.owner.queued) {
+                band.active.addLast(band.active.pollFirst());
+                continue;
+            }
+
+            if(slot.deficit <= 0) {
+                slot.deficit = Math.max(1, this.weights.applyAsInt(slot.owner.name));
+            }
+            slot.deficit--;
+
+            final SQLTask<?> task = slot.tasks.pollFirst();
+            this.removed(band, slot);
+            if(!slot.tasks.isEmpty() && slot.deficit <= 0) {
+                band.active.addLast(band.active.pollFirst());
+            }
+
+            return task;
+        }
+
+        return null;
+    }
+
+    /**
+     * CoDel for each priority class: once executors of a class have waited longer than target for a whole
+     * interval, its executors are shed at intervals shrinking with the square root of the shed count until
+     * the wait falls below target again.
+     * Late work is failed fast rather than run long after the caller stopped caring.
+     *
+     * @param task SQLTask just taken from the queue
+     * @param now System.nanoTime()
+     * @return Whether the task is shed
+     */
+    private boolean shed(final SQLTask<?> task, final long now) {
+        if(this.target <= 0) {
+            return false;
+        }
+
+        final Band band = this.bands[task.getPriority().ordinal()];
+        boolean above = false;
+        if(now - task.getQueued() < this.target || band.queued == 0) {
+            band.firstAbove = 0;
+        } else if(band.firstAbove == 0) {
+            band.firstAbove = now + this.interval;
+        } else if(now >= band.firstAbove) {
+            above = true;
+        }
+
+        if(band.dropping) {
+            if(!above) {
+                band.dropping = false;
+                return false;
+            }
+            if(now >= band.dropNext) {
+                band.dropCount++;
+                band.dropNext = this.next(band, band.dropNext);
+                return true;
+            }
+
+            return false;
+        }
+
+        if(above) {
+            band.dropping = true;
+            band.dropCount = band.dropCount > 2 && now - band.dropNext < 16 * this.interval ? band.dropCount - 2 : 1;
+            band.dropNext = this.next(band, now);
+            return true;
+        }
+
+        return false;
+    }
+
+    private long next(final Band band, final long time) {
+        return time + (long) (this.interval / Math.sqrt(band.dropCount));
+    }
+
+    /**
+     * Fail shed executors, called without the lock held as failing runs future listeners
+     */
+    private void shed(final List<SQLTask<?>> tasks) {
+        for(final SQLTask<?> task : tasks) {
+            this.shed.increment();
+            task.reject(new SQLDatabaseException("Execution lane for '" + this.database + "' shed an executor queued for "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.getQueued()) + "ms"));
+        }
+    }
+
+    /**
+     * Take the oldest executor of the lowest priority class at or below a priority out of the queue
+     *
+     * @param priority SQLPriority of the executor being queued
+     * @return SQLTask, null when only higher priority executors are queued
+     */
+    private SQLTask<?> oldest(final SQLPriority priority) {
+        for(int i = this.bands.length - 1; i >= priority.ordinal(); i--) {
+            final Band band = this.bands[i];
+
+            Slot oldest = null;
+            for(final Slot slot : band.active) {
+                if(oldest == null || slot.tasks.peekFirst().getQueued() < oldest.tasks.peekFirst().getQueued()) {
+                    oldest = slot;
+                }
+            }
+
+            if(oldest != null) {
+                final SQLTask<?> task = oldest.tasks.pollFirst();
+                this.removed(band, oldest);
+
+                return task;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return Executors dropped by a full queue
+     */
+    final long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * @return Executors shed for waiting longer than target
+     */
+    final long getShed() {
+        return this.shed.sum();
+    }
+
+    /**
+     * Update counts once a task was taken out of a slot, dropping the slot from its class when empty
+     */
+    private void removed(final Band band, final Slot slot) {
+        final Owner owner = slot.owner;
+        owner.queued--;
+        band.queued--;
+        this.count--;
+        this.space.signal();
+
+        if(slot.tasks.isEmpty()) {
+            band.active.remove(slot);
+            band.slots.remove(owner.name);
+
+            if(owner.queued == 0 && owner.running == 0) {
+                this.owners.remove(owner.name);
+            }
+        }
+    }
+
+    private Owner owner(final String name) {
+        return this.owners.computeIfAbsent(name, Owner::new);
+    }
+
+    private List<Runnable> snapshot() {
+        this.lock.lock();
+        try {
+            final List<Runnable> tasks = new ArrayList<>(this.count);
+            for(final Band band : this.bands) {
+                band.active.forEach(slot -> tasks.addAll(slot.tasks));
+            }
+
+            return tasks;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
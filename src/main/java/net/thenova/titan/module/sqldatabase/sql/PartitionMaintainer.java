@@ -0,0 +1,162 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+import net.thenova.titan.module.sqldatabase.tables.partition.TablePartitioning;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class PartitionMaintainer {
+
+    private final Database database;
+    private final DatabaseTable table;
+    private final TablePartitioning partitioning;
+
+    private ScheduledFuture<?> task;
+
+    PartitionMaintainer(final Database database, final DatabaseTable table) {
+        this.database = database;
+        this.table = table;
+        this.partitioning = table.getPartitioning();
+    }
+
+    /**
+     * Maintain partitions straight away and then at a fixed interval on the handler scheduler
+     *
+     * @param interval Milliseconds between runs
+     */
+    final synchronized void schedule(final long interval) {
+        this.cancel();
+        this.task = SQLConnectionHandler.INSTANCE.getScheduler()
+                .scheduleWithFixedDelay(this::maintain, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    final synchronized void cancel() {
+        if(this.task != null) {
+            this.task.cancel(false);
+            this.task = null;
+        }
+    }
+
+    /**
+     * Split the catch-all partition into partitions for the coming intervals and drop partitions
+     * past retention. Both are metadata changes as long as the catch-all partition is empty,
+     * which it stays while partitions are created ahead of time.
+     *
+     * @return Completed once the partitions have been changed
+     */
+    public final ListenableFuture<Void> maintain() {
+        final String name = this.table.getName();
+        final List<String> partitions = new ArrayList<>();
+        final List<String> bounds = new ArrayList<>();
+
+        return new SQLExecutor(this.database)
+                .priority(SQLPriority.BULK)
+                .querySelect("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY PARTITION_ORDINAL_POSITION", name)
+                .uncached()
+                .result(res -> {
+                    while(res.next()) {
+                        partitions.add(res.getString(1));
+                        bounds.add(res.getString(2));
+                    }
+                })
+                .then(executor -> {
+                    if(!partitions.contains(TablePartitioning.MAX_PARTITION)) {
+                        SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[PartitionMaintainer] - '%s' on '%s' is not partitioned yet", name, this.database.name());
+                        return;
+                    }
+
+                    final ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+                    long highest = Long.MIN_VALUE;
+                    for(int i = 0; i < partitions.size(); i++) {
+                        if(!TablePartitioning.MAX_PARTITION.equals(partitions.get(i))) {
+                            highest = Math.max(highest, Long.parseLong(bounds.get(i).trim()));
+                        }
+                    }
+
+                    final List<String> upcoming = PartitionMaintainer.upcoming(this.partitioning, now, highest, partitions);
+                    if(!upcoming.isEmpty()) {
+                        executor.queryUpdate("ALTER TABLE `" + name + "` REORGANIZE PARTITION `" + TablePartitioning.MAX_PARTITION + "` INTO ("
+                                + String.join(", ", upcoming)
+                                + ", PARTITION `" + TablePartitioning.MAX_PARTITION + "` VALUES LESS THAN MAXVALUE)");
+                    }
+
+                    if(this.partitioning.getRetention() == 0) {
+                        return;
+                    }
+
+                    ZonedDateTime cutoff = this.partitioning.getInterval().start(now);
+                    for(int i = 0; i < this.partitioning.getRetention(); i++) {
+                        cutoff = this.partitioning.getInterval().previous(cutoff);
+                    }
+
+                    final List<String> expired = new ArrayList<>();
+                    for(int i = 0; i < partitions.size(); i++) {
+                        if(!TablePartitioning.MAX_PARTITION.equals(partitions.get(i))
+                                && Long.parseLong(bounds.get(i).trim()) <= this.partitioning.value(cutoff)) {
+                            expired.add("`" + partitions.get(i) + "`");
+                        }
+                    }
+
+                    if(!expired.isEmpty()) {
+                        executor.queryUpdate("ALTER TABLE `" + name + "` DROP PARTITION " + String.join(", ", expired));
+                        SQLConnectionHandler.INSTANCE.getModuleLogger().info("[PartitionMaintainer] - Dropping %d expired partitions of '%s' on '%s'",
+                                expired.size(),
+                                name,
+                                this.database.name());
+                    }
+                })
+                .commit();
+    }
+
+    /**
+     * Build the partitions from the current interval up to the configured number of intervals ahead
+     * that are above the highest existing bound
+     *
+     * @param partitioning TablePartitioning
+     * @param now Current UTC time
+     * @param highest Highest bound of the existing ranged partitions, Long.MIN_VALUE when there are none
+     * @param existing Names of the existing partitions
+     * @return Partition definitions, oldest first
+     */
+    static List<String> upcoming(final TablePartitioning partitioning, final ZonedDateTime now, final long highest, final Collection<String> existing) {
+        final TablePartitioning.Interval interval = partitioning.getInterval();
+        final List<String> upcoming = new ArrayList<>();
+
+        ZonedDateTime start = interval.start(now);
+        for(int i = 0; i <= partitioning.getAhead(); i++, start = interval.next(start)) {
+            final long bound = partitioning.value(interval.next(start));
+            final String name = partitioning.name(start);
+            if(bound <= highest || existing.contains(name)) {
+                continue;
+            }
+
+            upcoming.add("PARTITION `" + name + "` VALUES LESS THAN (" + bound + ")");
+        }
+
+        return upcoming;
+    }
+}
@@ -0,0 +1,167 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ReplicaSet {
+
+    @Getter
+    public static final class Replica {
+        private final String name;
+        private final HikariDataSource source;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private volatile boolean available = true;
+        /* Seconds behind the primary, -1 when unknown */
+        private volatile long lag = -1;
+
+        private Replica(final String name, final HikariDataSource source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        /**
+         * Return the outstanding count taken by {@link ReplicaSet#acquire()}
+         */
+        final void release() {
+            this.outstanding.decrementAndGet();
+        }
+    }
+
+    @Getter private final String database;
+    @Getter private final List<Replica> replicas;
+    private final long maxLag;
+
+    private ScheduledFuture<?> task;
+
+    ReplicaSet(final String database, final List<String> names, final List<HikariDataSource> sources, final long maxLag) {
+        this.database = database;
+        this.maxLag = maxLag;
+
+        final Replica[] replicas = new Replica[names.size()];
+        for(int i = 0; i < replicas.length; i++) {
+            replicas[i] = new Replica(names.get(i), sources.get(i));
+        }
+        this.replicas = Collections.unmodifiableList(Arrays.asList(replicas));
+    }
+
+    /**
+     * Pick the available replica with the least outstanding executors, ties are broken at random
+     * so idle replicas share load. The count is held until {@link Replica#release()}.
+     *
+     * @return Replica, null when none are available
+     */
+    final Replica acquire() {
+        Replica selected = null;
+        int least = Integer.MAX_VALUE;
+        int ties = 0;
+
+        for(final Replica replica : this.replicas) {
+            if(!replica.available) {
+                continue;
+            }
+
+            final int outstanding = replica.outstanding.get();
+            if(outstanding < least) {
+                selected = replica;
+                least = outstanding;
+                ties = 1;
+            } else if(outstanding == least && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                selected = replica;
+            }
+        }
+
+        if(selected != null) {
+            selected.outstanding.incrementAndGet();
+        }
+
+        return selected;
+    }
+
+    /**
+     * Check replication lag of every replica at a fixed interval on the handler scheduler
+     *
+     * @param interval Milliseconds between checks
+     */
+    final synchronized void schedule(final long interval) {
+        this.cancel();
+        this.task = SQLConnectionHandler.INSTANCE.getScheduler()
+                .scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    final synchronized void cancel() {
+        if(this.task != null) {
+            this.task.cancel(false);
+            this.task = null;
+        }
+    }
+
+    /**
+     * Stop lag checks and close every replica pool
+     */
+    final void close() {
+        this.cancel();
+        this.replicas.forEach(replica -> replica.source.close());
+    }
+
+    /**
+     * Take replicas out of rotation when lag exceeds replica-max-lag, replication is stopped or the replica
+     * cannot be reached. A server without replication configured reports no status and stays in rotation.
+     */
+    private void check() {
+        for(final Replica replica : this.replicas) {
+            final boolean available;
+            try (final Connection connection = replica.source.getConnection();
+                 final Statement statement = connection.createStatement();
+                 final ResultSet res = statement.executeQuery("SHOW SLAVE STATUS")) {
+                if(res.next()) {
+                    final long lag = res.getLong("Seconds_Behind_Master");
+                    replica.lag = res.wasNull() ? -1 : lag;
+                    available = !res.wasNull() && lag <= this.maxLag;
+                } else {
+                    replica.lag = 0;
+                    available = true;
+                }
+            } catch (final SQLException ex) {
+                replica.lag = -1;
+                available = false;
+            }
+
+            if(available != replica.available) {
+                SQLConnectionHandler.INSTANCE.getModuleLogger().info("[ReplicaSet] - Replica '%s' of '%s' is %s rotation, lag: %d",
+                        replica.name,
+                        this.database,
+                        available ? "back in" : "out of",
+                        replica.lag);
+            }
+            replica.available = available;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+import net.thenova.titan.module.sqldatabase.tables.column.TableColumn;
+import net.thenova.titan.module.sqldatabase.tables.shard.ShardedDatabase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class SQLBulkUpsert {
+
+    /* Placeholders allowed in a single server-side prepared statement */
+    private static final int MAX_PARAMETERS = 65535;
+    /* Largest row-count bucket, statements are always a power of two rows up to this */
+    private static final int MAX_ROWS = 1024;
+    /* Share of max_allowed_packet used for parameters, the rest covers protocol overhead */
+    private static final double PACKET_USAGE = 0.9;
+
+    private static final Map<String, String> QUERIES = new ConcurrentHashMap<>();
+
+    private final DatabaseTable table;
+    private final List<String> columns;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private List<String> updates;
+
+    /**
+     * @param table DatabaseTable being written to
+     * @param columns Column names in the order values are given to {@link #row(Object...)}
+     */
+    public SQLBulkUpsert(final DatabaseTable table, final String... columns) {
+        this(table, Arrays.asList(columns));
+    }
+
+    public SQLBulkUpsert(final DatabaseTable table, final List<String> columns) {
+        this.table = table;
+        this.columns = new ArrayList<>(columns);
+        this.updates = table.getColumns()
+                .stream()
+                .filter(column -> !column.isPrimaryKey())
+                .map(TableColumn::getName)
+                .filter(this.columns::contains)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Set the columns overwritten when a row already exists, defaults to every non primary key column given.
+     * No columns results in INSERT IGNORE.
+     *
+     * @param columns String
+     * @return SQLBulkUpsert
+     */
+    public final SQLBulkUpsert update(final String... columns) {
+        this.updates = Arrays.asList(columns);
+
+        return this;
+    }
+
+    /**
+     * Add a row
+     *
+     * @param values Object, one per column
+     * @return SQLBulkUpsert
+     */
+    public final SQLBulkUpsert row(final Object... values) {
+        try {
+            if(values.length != this.columns.size()) {
+                throw new SQLDatabaseException("Upsert row for '" + this.table.getName() + "' had " + values.length
+                        + " values, expected " + this.columns.size());
+            }
+
+            this.rows.add(values);
+        } catch (final SQLDatabaseException ignored) {}
+
+        return this;
+    }
+
+    /**
+     * Build an SQLExecutor containing the upsert split in to statements that fit
+     * within the max_allowed_packet of the tables database. Rows of a sharded table must all
+     * belong to one shard, use {@link #transaction()} for rows spread over shards.
+     *
+     * @return SQLExecutor
+     */
+    public final SQLExecutor build() {
+        final Map<Database, SQLExecutor> executors = this.buildShards();
+        if(executors.size() == 1) {
+            return executors.values().iterator().next();
+        }
+
+        if(executors.size() > 1) {
+            try {
+                throw new SQLDatabaseException("Upsert for '" + this.table.getName() + "' spans " + executors.size()
+                        + " shards and cannot be built as a single executor");
+            } catch (final SQLDatabaseException ignored) {}
+        }
+
+        // Without a shard to route to, the executor fails once committed
+        return this.build(this.table.getDatabase(), this.rows);
+    }
+
+    /**
+     * Write every row in a transaction per shard, or a single transaction for tables that are not sharded
+     *
+     * @return Void called once every shard has been written, failed when any shard fails
+     */
+    public final ListenableFuture<Void> transaction() {
+        return Futures.transform(Futures.allAsList(this.buildShards()
+                        .values()
+                        .stream()
+                        .map(SQLExecutor::transaction)
+                        .collect(Collectors.toList())),
+                ignored -> null,
+                MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Build an SQLExecutor for every shard holding rows, routed by the shard key column of the table
+     *
+     * @return Database of each shard to its SQLExecutor, only the tables database when it is not sharded
+     */
+    final Map<Database, SQLExecutor> buildShards() {
+        final Database database = this.table.getDatabase();
+        final Map<Database, SQLExecutor> executors = new LinkedHashMap<>();
+        if(!(database instanceof ShardedDatabase)) {
+            executors.put(database, this.build(database, this.rows));
+            return executors;
+        }
+
+        final int key = this.columns.indexOf(this.table.getShardKey());
+        if(key < 0) {
+            try {
+                throw new SQLDatabaseException("Upsert for sharded table '" + this.table.getName() + "' is missing shard key column '"
+                        + this.table.getShardKey() + "'");
+            } catch (final SQLDatabaseException ignored) {}
+
+            executors.put(database, this.build(database, this.rows));
+            return executors;
+        }
+
+        final Map<Database, List<Object[]>> shards = new LinkedHashMap<>();
+        this.rows.forEach(row -> shards.computeIfAbsent(((ShardedDatabase) database).shard(row[key]), shard -> new ArrayList<>()).add(row));
+        shards.forEach((shard, rows) -> executors.put(shard, this.build(shard, rows)));
+
+        return executors;
+    }
+
+    /**
+     * Build an SQLExecutor for rows of one database, split in to statements that fit within its max_allowed_packet
+     *
+     * @param database Database the rows are written to
+     * @param rows Rows to write
+     * @return SQLExecutor
+     */
+    private SQLExecutor build(final Database database, final List<Object[]> rows) {
+        final SQLExecutor executor = new SQLExecutor(database);
+        final long budget = (long) (SQLConnectionHandler.INSTANCE.getMaxAllowedPacket(database) * PACKET_USAGE);
+        final int cap = Math.min(MAX_ROWS, MAX_PARAMETERS / Math.max(1, this.columns.size()));
+
+        int index = 0;
+        while(index < rows.size()) {
+            final int limit = Math.min(cap, rows.size() - index);
+
+            int count = 0;
+            long size = this.query(1).length();
+            while(count < limit) {
+                size += SQLBulkUpsert.estimate(rows.get(index + count)) + this.columns.size() * 3L;
+                if(count > 0 && size > budget) {
+                    break;
+                }
+
+                count++;
+            }
+
+            // Round down to a bucket so the generated SQL is shared by later builds
+            count = Integer.highestOneBit(count);
+
+            final List<Object> parameters = new ArrayList<>(count * this.columns.size());
+            for(int i = index; i < index + count; i++) {
+                Collections.addAll(parameters, rows.get(i));
+            }
+
+            executor.queryUpdate(this.query(count), parameters.toArray());
+            index += count;
+        }
+
+        return executor;
+    }
+
+    /**
+     * Return the cached query for the amount of rows
+     *
+     * @param rows Row-count bucket
+     * @return String
+     */
+    private String query(final int rows) {
+        final String key = this.table.getName() + "|" + String.join(",", this.columns) + "|" + String.join(",", this.updates) + "|" + rows;
+
+        return QUERIES.computeIfAbsent(key, ignored -> {
+            final String placeholders = this.columns.stream()
+                    .map(column -> "?")
+                    .collect(Collectors.joining(", ", "(", ")"));
+
+            final StringBuilder query = new StringBuilder(this.updates.isEmpty() ? "INSERT IGNORE INTO `" : "INSERT INTO `")
+                    .append(this.table.getName())
+                    .append("` (`")
+                    .append(String.join("`, `", this.columns))
+                    .append("`) VALUES ")
+                    .append(String.join(", ", Collections.nCopies(rows, placeholders)));
+
+            if(!this.updates.isEmpty()) {
+                query.append(" ON DUPLICATE KEY UPDATE ")
+                        .append(this.updates.stream()
+                                .map(column -> "`" + column + "` = VALUES(`" + column + "`)")
+                                .collect(Collectors.joining(", ")));
+            }
+
+            return query.toString();
+        });
+    }
+
+    /**
+     * Estimate the bytes a row takes on the wire
+     *
+     * @param row Object[]
+     * @return long
+     */
+    private static long estimate(final Object[] row) {
+        long size = 0;
+        for(final Object value : row) {
+            if(value == null) {
+                size += 1;
+            } else if(value instanceof byte[]) {
+                size += ((byte[]) value).length + 9;
+            } else if(value instanceof CharSequence) {
+                size += value.toString().getBytes(StandardCharsets.UTF_8).length + 9;
+            } else if(value instanceof Number || value instanceof Boolean) {
+                size += 9;
+            } else {
+                size += value.toString().length() + 9;
+            }
+        }
+
+        return size;
+    }
+}
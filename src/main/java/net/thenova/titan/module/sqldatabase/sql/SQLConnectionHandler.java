@@ -5,28 +5,49 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.zaxxer.hikari.HikariDataSource;
 import de.arraying.kotys.JSON;
 import de.arraying.lumberjack.LFsRules;
 import de.arraying.lumberjack.LLogLevel;
 import de.arraying.lumberjack.LLogger;
 import de.arraying.lumberjack.LLoggerBuilder;
+import lombok.AccessLevel;
 import lombok.Getter;
 import net.thenova.titan.Titan;
 import net.thenova.titan.json.JSONFile;
 import net.thenova.titan.json.JSONFileData;
 import net.thenova.titan.module.ModuleManager;
+import net.thenova.titan.module.sqldatabase.settings.ConnectionHandlerSettings;
 import net.thenova.titan.module.sqldatabase.settings.DatabaseConnectionSettings;
+import net.thenova.titan.module.sqldatabase.sql.metrics.SQLMetrics;
 import net.thenova.titan.module.sqldatabase.tables.Database;
 import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+import net.thenova.titan.module.sqldatabase.tables.shard.DatabaseShard;
+import net.thenova.titan.module.sqldatabase.tables.shard.ShardedDatabase;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -48,16 +69,60 @@ import java.util.stream.Collectors;
 public enum SQLConnectionHandler {
     INSTANCE;
 
+    /**
+     * Exposes the classes on the calling stack, used to find the module an executor is created by
+     */
+    private static final class CallerContext extends SecurityManager {
+        private Class<?>[] classes() {
+            return this.getClassContext();
+        }
+    }
+
+    /* MariaDB default, used when the server variable could not be read */
+    private static final long DEFAULT_MAX_ALLOWED_PACKET = 16 * 1024 * 1024;
+
     private JSONFile file;
     private LLogger logger;
+    /* Used in place of the Titan logger when set, for running outside of a Titan server */
+    @Getter(AccessLevel.NONE) private volatile LLogger moduleLogger;
+    private SQLStatementLogger statementLogger;
+    private SQLPlanSampler planSampler;
+    private ConnectionHandlerSettings settings;
 
     private ListeningExecutorService executorService;
+    private ScheduledExecutorService scheduler;
+    /* Runs schema migrations, a table copy can take hours so it is kept off the shared executors */
+    private ExecutorService migrator;
+    @Getter(AccessLevel.NONE) private ExecutorService loader;
+    private SQLResultCache resultCache;
     private boolean debugToConsole;
 
-    private final Map<String, HikariDataSource> sources = new HashMap<>();
+    /* Threads connecting databases in parallel at start up */
+    private static final int MAX_LOAD_THREADS = 16;
+
+    private final Map<String, HikariDataSource> sources = new ConcurrentHashMap<>();
+    private final Map<String, DatabaseConnectionSettings> connectionSettings = new ConcurrentHashMap<>();
+    private final Map<String, WriteBehindBuffer> buffers = new ConcurrentHashMap<>();
+    private final Map<String, Long> maxAllowedPackets = new ConcurrentHashMap<>();
+    private final Map<String, ReplicaSet> replicaSets = new ConcurrentHashMap<>();
+    private final Map<String, AdaptivePoolSizer> sizers = new ConcurrentHashMap<>();
+    private final Map<String, PartitionMaintainer> maintainers = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE) private final Map<String, SettableFuture<Void>> loads = new ConcurrentHashMap<>();
+    /* Incremented on shutdown, loads started before it close their sources rather than registering them */
+    @Getter(AccessLevel.NONE) private final AtomicInteger generation = new AtomicInteger();
+    private final Map<String, ExecutionLane> lanes = new ConcurrentHashMap<>();
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+    /* Class loader of every module using the database expansion, to its module name */
+    @Getter(AccessLevel.NONE) private final Map<ClassLoader, String> modules = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE) private final CallerContext callers = new CallerContext();
+    private final Map<String, Integer> ownerWeights = new ConcurrentHashMap<>();
+    private final Map<String, List<DatabaseShard>> shards = new ConcurrentHashMap<>();
+    private final Map<String, ShardedDatabase> sharded = new ConcurrentHashMap<>();
+
+    private final SQLMetrics metrics = new SQLMetrics();
 
-    private long executions;
-    private long statements;
+    @Getter(AccessLevel.NONE) private final LongAdder executions = new LongAdder();
+    @Getter(AccessLevel.NONE) private final LongAdder statements = new LongAdder();
 
     public void init() {
         this.file = JSONFile.create(new JSONFileData() {
@@ -76,9 +141,19 @@ public enum SQLConnectionHandler {
                 return this.getClass().getClassLoader();
             }
         });
-        final JSON config = this.file.getJson().json("config");
+        final ConnectionHandlerSettings settings = this.file.getJson()
+                .json("config")
+                .marshal(ConnectionHandlerSettings.class);
+
+        final JSON weights = this.file.getJson()
+                .json("config")
+                .json("module-weights");
+        this.ownerWeights.clear();
+        if(weights != null) {
+            weights.raw().forEach((owner, weight) -> this.ownerWeights.put(owner, weight instanceof Number ? ((Number) weight).intValue() : 1));
+        }
 
-        this.logger = LLoggerBuilder.create("sqldatabase")
+        this.init(settings, LLoggerBuilder.create("sqldatabase")
                 .withRouteFs(LLogLevel.INFO, new LFsRules() {
                     @Override
                     public File getDirectory() {
@@ -101,36 +176,541 @@ public enum SQLConnectionHandler {
                     }
                 })
                 .withThreadPoolSize(1)
-                .build();
+                .build());
 
-        this.executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(config.integer("thread-pool-size")));
-        this.debugToConsole = config.bool("debug-to-console");
+        // Lazy pools are connected by the first getSource of their database instead
+        if(!this.settings.isLazyPools()) {
+            this.loadSources(new ArrayList<>(this.file.getJson().json("databases").raw().keySet()));
+        }
+    }
+
+    /**
+     * Connect databases in parallel, waiting at most pool-init-timeout for all of them.
+     * Databases still connecting by then carry on in the background.
+     *
+     * @param keys - Database names
+     */
+    private void loadSources(final List<String> keys) {
+        if(keys.isEmpty()) {
+            return;
+        }
+
+        this.loader = ExecutorMode.parse(this.settings.getExecutor())
+                .create("titan-sqldatabase-load", Math.min(keys.size(), MAX_LOAD_THREADS));
+        final List<ListenableFuture<Void>> loads = keys.stream()
+                .map(key -> this.load(key, this.loader))
+                .collect(Collectors.toList());
+        this.loader.shutdown();
 
-        final JSON databases = this.file.getJson().json("databases");
-        databases.raw()
-                .keySet()
-                .forEach(this::loadSource);
+        final long deadline = System.currentTimeMillis() + this.settings.getPoolInitTimeout();
+        for(int i = 0; i < keys.size(); i++) {
+            try {
+                loads.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final ExecutionException | TimeoutException ex) {
+                this.getModuleLogger().info("[SQLConnectionHandler] - '%s' did not connect within %dms, continuing in the background",
+                        keys.get(i),
+                        this.settings.getPoolInitTimeout());
+            }
+        }
+    }
+
+    /**
+     * Load a database on an executor, concurrent callers for the same database share one load
+     *
+     * @param key - String
+     * @param executor - Executor the load runs on
+     * @return - Completed once the load has finished, whether or not it connected
+     */
+    private ListenableFuture<Void> load(final String key, final Executor executor) {
+        final SettableFuture<Void> load = SettableFuture.create();
+        final ListenableFuture<Void> running = this.loads.putIfAbsent(key, load);
+        if(running != null) {
+            return running;
+        }
+
+        final int generation = this.generation.get();
+        final Runnable task = () -> {
+            try {
+                this.loadSource(key, generation);
+            } finally {
+                // Databases that failed to connect are tried again by the next caller
+                if(!this.sources.containsKey(key) && !this.shards.containsKey(key)) {
+                    this.loads.remove(key, load);
+                }
+                load.set(null);
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException ex) {
+            this.loads.remove(key, load);
+            load.set(null);
+        }
+
+        return load;
+    }
+
+    /**
+     * Load a database on the calling thread, or wait up to pool-init-timeout for a load already running
+     *
+     * @param key - String
+     */
+    private void await(final String key) {
+        try {
+            this.load(key, MoreExecutors.directExecutor()).get(this.settings.getPoolInitTimeout(), TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | TimeoutException ex) {
+            this.getModuleLogger().debug("[SQLConnectionHandler] - '%s' is still connecting", key);
+        }
+    }
+
+    /**
+     * Logger the module writes its own messages to, the Titan logger unless one was set.
+     *
+     * @return LLogger
+     */
+    public LLogger getModuleLogger() {
+        final LLogger logger = this.moduleLogger;
+        return logger != null ? logger : Titan.INSTANCE.getLogger();
+    }
+
+    /**
+     * Log module messages to the given logger rather than the Titan logger, used where
+     * Titan is not running such as benchmarks.
+     *
+     * @param logger - LLogger, null to use the Titan logger again
+     */
+    public void setModuleLogger(final LLogger logger) {
+        this.moduleLogger = logger;
+    }
+
+    /**
+     * Start the handler with settings given directly rather than read from database.json,
+     * sources are then added through {@link #register(String, HikariDataSource)}.
+     *
+     * @param settings - ConnectionHandlerSettings
+     * @param logger - LLogger statements are logged to
+     */
+    public void init(final ConnectionHandlerSettings settings, final LLogger logger) {
+        this.settings = settings;
+        this.logger = logger;
+        this.statementLogger = new SQLStatementLogger(this.logger,
+                SQLStatementLogger.Mode.parse(this.settings.getLogMode()),
+                this.settings.getLogSlowThreshold(),
+                this.settings.getLogSampleRate());
+        this.planSampler = new SQLPlanSampler(this.logger,
+                SQLStatementLogger.Mode.parse(this.settings.getExplainMode()),
+                this.settings.getExplainSlowThreshold(),
+                this.settings.getExplainSampleRate());
+
+        this.executorService = MoreExecutors.listeningDecorator(ExecutorMode.parse(this.settings.getExecutor())
+                .create("titan-sqldatabase", this.settings.getThreadPoolSize()));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "titan-sqldatabase-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.migrator = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "titan-sqldatabase-migrate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.debugToConsole = this.settings.isDebugToConsole();
+        this.resultCache = new SQLResultCache(this.settings.isResultCache(),
+                this.settings.getResultCacheSize(),
+                this.settings.getResultCacheTtl());
     }
 
     public void shutdown() {
+        this.generation.incrementAndGet();
+        if(this.loader != null) {
+            this.loader.shutdownNow();
+            try {
+                if(!this.loader.awaitTermination(this.settings.getPoolInitTimeout(), TimeUnit.MILLISECONDS)) {
+                    this.getModuleLogger().info("[SQLConnectionHandler] - Databases still connecting after %dms, their pools are closed once connected",
+                            this.settings.getPoolInitTimeout());
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.loader = null;
+        }
+
+        this.flushBuffers();
+        if(this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        this.lanes.values().forEach(ExecutionLane::shutdown);
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        this.lanes.values().forEach(lane -> lane.awaitTermination(Math.max(0, deadline - System.currentTimeMillis())));
+        this.lanes.clear();
+        if(this.executorService != null) {
+            this.executorService.shutdown();
+            try {
+                if(!this.executorService.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    this.executorService.shutdownNow();
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(this.migrator != null) {
+            // Interrupting a copy stops it between chunks and drops its shadow table
+            this.migrator.shutdownNow();
+            try {
+                this.migrator.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(this.statementLogger != null) {
+            this.statementLogger.shutdown();
+        }
+        if(this.planSampler != null) {
+            this.planSampler.shutdown();
+        }
+
+        this.sizers.values().forEach(AdaptivePoolSizer::cancel);
+        this.sizers.clear();
+        this.maintainers.values().forEach(PartitionMaintainer::cancel);
+        this.maintainers.clear();
+        this.replicaSets.values().forEach(ReplicaSet::close);
+        this.replicaSets.clear();
+        // Loads dropped by the loader never complete, release anyone waiting on them
+        this.loads.values().forEach(load -> load.set(null));
+        this.loads.clear();
         this.sources.values().forEach(HikariDataSource::close);
         this.sources.clear();
+        this.shards.clear();
+        this.sharded.clear();
+        this.connectionSettings.clear();
+        this.maxAllowedPackets.clear();
+    }
+
+    /**
+     * Flush every WriteBehindBuffer and wait for the writes to complete, rows of failed flushes are retried
+     * until they are written, give up or 30 seconds pass. Rows left unwritten are logged.
+     */
+    private void flushBuffers() {
+        this.buffers.values().forEach(WriteBehindBuffer::cancel);
+
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        for(int attempt = 0; attempt < WriteBehindBuffer.MAX_ATTEMPTS; attempt++) {
+            final List<ListenableFuture<Void>> flushes = this.buffers.values()
+                    .stream()
+                    .filter(buffer -> buffer.getPending() > 0)
+                    .map(WriteBehindBuffer::flush)
+                    .collect(Collectors.toList());
+            if(flushes.isEmpty()) {
+                break;
+            }
+
+            try {
+                // Failures are logged by the buffers, their rows are pending again for the next attempt
+                Futures.successfulAsList(flushes).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final ExecutionException | TimeoutException ex) {
+                this.getModuleLogger().info("[SQLConnectionHandler] - Failed to flush write-behind buffers on shutdown: %s", ex.getMessage());
+                break;
+            }
+        }
+
+        this.buffers.values()
+                .stream()
+                .filter(buffer -> buffer.getPending() > 0)
+                .forEach(buffer -> this.getModuleLogger().info("[SQLConnectionHandler] - %d buffered rows for '%s' were not written before shutdown",
+                        buffer.getPending(),
+                        buffer.getDatabase().name()));
+        this.buffers.clear();
     }
 
     /**
      * Load a HikariDataSource into map
      *
      * @param key - String
+     * @param generation - Handler generation the load was started in
      */
-    private void loadSource(final String key) {
-        final DatabaseConnectionSettings settings = this.file.getJson()
+    private void loadSource(final String key, final int generation) {
+        final JSON json = this.file.getJson()
                 .json("databases")
-                .json(key)
-                .marshal(DatabaseConnectionSettings.class);
+                .json(key);
+        if(json.json("shards") != null) {
+            this.loadShards(key, json.json("shards"), generation);
+            return;
+        }
+
+        final DatabaseConnectionSettings settings = json.marshal(DatabaseConnectionSettings.class);
+
+        this.connectionSettings.put(key, settings);
+        try {
+            final HikariDataSource source = settings.build(key);
+
+            this.maxAllowedPackets.put(key, this.readMaxAllowedPacket(source));
+            if(!this.publish(key, source, generation)) {
+                return;
+            }
+            this.adapt(key, source, settings);
+        } catch (final SQLDatabaseException ignored) {
+            return;
+        }
+
+        this.loadReplicas(key, settings);
+        this.resizeLane(key);
+    }
+
+    /**
+     * Register a loaded source, unless the handler was shut down since the load started. The generation is
+     * checked again after registering, so a shutdown running alongside either closes the source itself or
+     * leaves it to be closed here.
+     *
+     * @param key - String
+     * @param source - HikariDataSource
+     * @param generation - Handler generation the load was started in
+     * @return - Whether the source was registered
+     */
+    private boolean publish(final String key, final HikariDataSource source, final int generation) {
+        if(this.generation.get() == generation) {
+            this.sources.put(key, source);
+            if(this.generation.get() == generation) {
+                return true;
+            }
+            this.sources.remove(key, source);
+        }
+
+        this.getModuleLogger().debug("[SQLConnectionHandler] - '%s' connected after shutdown, closing it", key);
+        source.close();
+        return false;
+    }
+
+    /**
+     * Start resizing a pool at runtime when adaptive-pool is enabled for it
+     *
+     * @param key - String
+     * @param source - HikariDataSource
+     * @param settings - DatabaseConnectionSettings
+     */
+    private void adapt(final String key, final HikariDataSource source, final DatabaseConnectionSettings settings) {
+        if(!settings.isAdaptivePool()) {
+            return;
+        }
+
+        final AdaptivePoolSizer sizer = new AdaptivePoolSizer(key, source, settings, this.readMaxConnections(source));
+        sizer.schedule(settings.getAdaptivePoolInterval());
+
+        this.sizers.put(key, sizer);
+    }
+
+    /**
+     * Load every shard listed under shards of a database entry, each shard entry takes the
+     * same fields as a database entry and is loaded as its own source.
+     *
+     * @param key - String
+     * @param json - JSON of the shards entry
+     * @param generation - Handler generation the load was started in
+     */
+    private void loadShards(final String key, final JSON json, final int generation) {
+        // Shards are only loaded once the ShardedDatabase they belong to is known
+        final ShardedDatabase parent = this.sharded.get(key);
+        if(parent == null || this.shards.containsKey(key)) {
+            return;
+        }
+
+        final List<String> names = new ArrayList<>(json.raw().keySet());
+        Collections.sort(names);
+
+        final List<DatabaseShard> shards = new ArrayList<>();
+        for(final String name : names) {
+            final DatabaseShard shard = new DatabaseShard(parent, name, shards.size());
+            final DatabaseConnectionSettings settings = json.json(name).marshal(DatabaseConnectionSettings.class);
+
+            this.connectionSettings.put(shard.name(), settings);
+            try {
+                final HikariDataSource source = settings.build(shard.name());
+
+                this.maxAllowedPackets.put(shard.name(), this.readMaxAllowedPacket(source));
+                if(!this.publish(shard.name(), source, generation)) {
+                    return;
+                }
+                this.adapt(shard.name(), source, settings);
+                this.resizeLane(shard.name());
+            } catch (final SQLDatabaseException ignored) { }
+
+            shards.add(shard);
+        }
 
         try {
-            this.sources.put(key, settings.build(key));
-        } catch (final SQLDatabaseException ignored) { }
+            parent.shardFunction().validate(names);
+        } catch (final IllegalArgumentException ex) {
+            this.getModuleLogger().info("[SQLConnectionHandler] - Shards of '%s' do not match its shard function: %s", key, ex.getMessage());
+        }
+
+        this.shards.put(key, Collections.unmodifiableList(shards));
+    }
+
+    /**
+     * Return every shard of a sharded database, attempt loading if not found.
+     *
+     * @param database - ShardedDatabase
+     * @return - DatabaseShards ordered by name, empty when none are configured
+     */
+    public final List<DatabaseShard> getShards(final ShardedDatabase database) {
+        final String name = database.name();
+        this.sharded.putIfAbsent(name, database);
+
+        if(!this.shards.containsKey(name)) {
+            if(this.configure(name, new JSON().put("shards", new JSON().put("shard-0", new DatabaseConnectionSettings())))) {
+                this.getModuleLogger().info("[SQLConnectionHandler] - Shard configuration is required for '%s' in database.json", name);
+            } else {
+                this.await(name);
+            }
+        }
+
+        return this.shards.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * Return the shard holding a key, picked by the shard function of the database
+     *
+     * @param database - ShardedDatabase
+     * @param key - Shard key
+     * @return - Database of the shard, the sharded database itself when no shards are configured
+     */
+    public final Database getShard(final ShardedDatabase database, final Object key) {
+        final List<DatabaseShard> shards = this.getShards(database);
+        if(shards.isEmpty()) {
+            return database;
+        }
+
+        return shards.get(database.shardFunction().shard(key, shards.stream()
+                .map(DatabaseShard::getShard)
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Load the read replicas listed under replicas of a database entry, each replica
+     * entry takes the same fields as a database entry.
+     *
+     * @param key - String
+     * @param settings - DatabaseConnectionSettings of the primary
+     */
+    private void loadReplicas(final String key, final DatabaseConnectionSettings settings) {
+        final JSON json = this.file.getJson()
+                .json("databases")
+                .json(key)
+                .json("replicas");
+        if(json == null) {
+            return;
+        }
+
+        final List<String> names = new ArrayList<>();
+        final List<HikariDataSource> replicas = new ArrayList<>();
+        for(final String name : json.raw().keySet()) {
+            try {
+                replicas.add(json.json(name)
+                        .marshal(DatabaseConnectionSettings.class)
+                        .build(key + "-" + name, true));
+                names.add(name);
+            } catch (final SQLDatabaseException ignored) { }
+        }
+
+        if(!names.isEmpty()) {
+            final ReplicaSet set = new ReplicaSet(key, names, replicas, settings.getReplicaMaxLag());
+            set.schedule(settings.getReplicaCheckInterval());
+
+            this.replicaSets.put(key, set);
+        }
+    }
+
+    /**
+     * Return the read replicas of a database, read-only executors are routed to these
+     *
+     * @param database - Database
+     * @return - ReplicaSet, null when the database has no replicas
+     */
+    public final ReplicaSet getReplicaSet(final Database database) {
+        this.getSource(database);
+
+        return this.replicaSets.get(database.name());
+    }
+
+    /**
+     * @param database - Database
+     * @return - Whether queued statements for the database are sent as one multi-statement packet
+     */
+    public final boolean isPipelining(final Database database) {
+        final DatabaseConnectionSettings settings = this.connectionSettings.get(database.name());
+
+        return settings != null && settings.isPipelining();
+    }
+
+    /**
+     * Register a HikariDataSource created outside of database.json
+     *
+     * @param key - Database name
+     * @param source - HikariDataSource
+     */
+    public void register(final String key, final HikariDataSource source) {
+        this.connectionSettings.putIfAbsent(key, new DatabaseConnectionSettings());
+        this.sources.put(key, source);
+    }
+
+    /**
+     * Read max_allowed_packet from the server behind a source
+     *
+     * @param source - HikariDataSource
+     * @return - Bytes
+     */
+    private long readMaxAllowedPacket(final HikariDataSource source) {
+        try (final Connection connection = source.getConnection();
+             final Statement statement = connection.createStatement();
+             final ResultSet res = statement.executeQuery("SELECT @@max_allowed_packet")) {
+            if(res.next()) {
+                return res.getLong(1);
+            }
+        } catch (final SQLException ex) {
+            this.getModuleLogger().debug("[SQLConnectionHandler] - Failed to read max_allowed_packet for '%s': %s", source.getPoolName(), ex.getMessage());
+        }
+
+        return DEFAULT_MAX_ALLOWED_PACKET;
+    }
+
+    /**
+     * Read max_connections of the server, bounding how far an adaptive pool grows
+     *
+     * @param source - HikariDataSource
+     * @return - Connections, 0 when it could not be read
+     */
+    private int readMaxConnections(final HikariDataSource source) {
+        try (final Connection connection = source.getConnection();
+             final Statement statement = connection.createStatement();
+             final ResultSet res = statement.executeQuery("SELECT @@max_connections")) {
+            if(res.next()) {
+                return res.getInt(1);
+            }
+        } catch (final SQLException ex) {
+            this.getModuleLogger().debug("[SQLConnectionHandler] - Failed to read max_connections for '%s': %s", source.getPoolName(), ex.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Return max_allowed_packet of the server behind a database, read once when its source is loaded.
+     *
+     * @param database - Database
+     * @return - Bytes
+     */
+    public final long getMaxAllowedPacket(final Database database) {
+        this.getSource(database);
+
+        return this.maxAllowedPackets.getOrDefault(database.name(), DEFAULT_MAX_ALLOWED_PACKET);
     }
 
     /**
@@ -142,15 +722,21 @@ public enum SQLConnectionHandler {
     public final HikariDataSource getSource(final Database database) {
         final String name = database.name();
 
-        if(!this.sources.containsKey(name)) {
-            final JSON json = this.file.getJson();
-            if(json.json("databases").json(name) == null) {
-                json.json("databases").put(name, new DatabaseConnectionSettings());
-                this.file.save(json);
+        // Shards are loaded with their parent, which has no source of its own
+        if(database instanceof ShardedDatabase) {
+            this.getShards((ShardedDatabase) database);
+            return null;
+        }
+        if(database instanceof DatabaseShard) {
+            this.getShards(((DatabaseShard) database).getParent());
+            return this.sources.get(name);
+        }
 
-                Titan.INSTANCE.getLogger().info("[SQLConnectionHandler] - Configuration is required for '%s' in database.json", name);
+        if(!this.sources.containsKey(name)) {
+            if(this.configure(name, new DatabaseConnectionSettings())) {
+                this.getModuleLogger().info("[SQLConnectionHandler] - Configuration is required for '%s' in database.json", name);
             } else {
-                this.loadSource(name);
+                this.await(name);
             }
         }
 
@@ -158,37 +744,272 @@ public enum SQLConnectionHandler {
     }
 
     /**
-     * Create a List of tables
+     * Add a default entry for a database missing from database.json
+     *
+     * @param name - Database name
+     * @param entry - Default entry
+     * @return - Whether the entry was missing and has been added
+     */
+    private boolean configure(final String name, final Object entry) {
+        synchronized (this.file) {
+            final JSON json = this.file.getJson();
+            if(json.json("databases").json(name) != null) {
+                return false;
+            }
+
+            json.json("databases").put(name, entry);
+            this.file.save(json);
+
+            return true;
+        }
+    }
+
+    /**
+     * Return the execution lane of a database, every database runs its executors on its own
+     * threads so a slow database cannot hold up another.
+     *
+     * @param database - Database
+     * @return - ExecutionLane
+     */
+    public final ExecutionLane getLane(final Database database) {
+        return this.lanes.computeIfAbsent(database.name(), name -> {
+            final DatabaseConnectionSettings settings = this.connectionSettings.getOrDefault(name, new DatabaseConnectionSettings());
+
+            return new ExecutionLane(name, ExecutorMode.parse(this.settings.getExecutor()), settings, this.getLaneConnections(name));
+        });
+    }
+
+    /**
+     * Connections the executors of a lane can use at most, the primary pool at the size an adaptive pool may grow
+     * to and every replica pool. Lanes run this many executors, so executors can wait on the pool and make it grow.
+     *
+     * @param name - Database name
+     * @return - Connections
+     */
+    private int getLaneConnections(final String name) {
+        final AdaptivePoolSizer sizer = this.sizers.get(name);
+        int connections = sizer != null
+                ? sizer.getCeiling()
+                : this.connectionSettings.getOrDefault(name, new DatabaseConnectionSettings()).getMaxConnections();
+
+        final ReplicaSet replicas = this.replicaSets.get(name);
+        if(replicas != null) {
+            connections += replicas.getReplicas()
+                    .stream()
+                    .mapToInt(replica -> replica.getSource().getMaximumPoolSize())
+                    .sum();
+        }
+
+        return connections;
+    }
+
+    /**
+     * Resize the lane of a database already in use once its pools are loaded
+     *
+     * @param name - Database name
+     */
+    private void resizeLane(final String name) {
+        final ExecutionLane lane = this.lanes.get(name);
+        if(lane != null) {
+            lane.resize(this.getLaneConnections(name));
+        }
+    }
+
+    /**
+     * @return - Execution lane of every database used so far, keyed by database name
+     */
+    public final Map<String, ExecutionLane> getLanes() {
+        return Collections.unmodifiableMap(this.lanes);
+    }
+
+    /**
+     * Record the module a database belongs to, its executors are queued for that module
+     *
+     * @param database - Database
+     * @param owner - Module name
+     */
+    public final void registerOwner(final Database database, final String owner) {
+        this.owners.putIfAbsent(database.name(), owner);
+    }
+
+    /**
+     * Record the class loader of a module, executors created from its classes are queued for that module
+     *
+     * @param loader - ClassLoader of the module
+     * @param module - Module name
+     */
+    public final void registerModule(final ClassLoader loader, final String module) {
+        this.modules.put(loader, module);
+    }
+
+    public final void unregisterModule(final ClassLoader loader) {
+        this.modules.remove(loader);
+    }
+
+    /**
+     * Find the module an executor is created for. With more than one module registered the calling stack is
+     * searched for a class of a registered module, so modules sharing a database take turns in its lane.
+     *
+     * @param database - Database
+     * @return - Module creating the executor, otherwise the module owning the database
+     */
+    public final String resolveOwner(final Database database) {
+        if(this.modules.size() > 1) {
+            for(final Class<?> type : this.callers.classes()) {
+                final ClassLoader loader = type.getClassLoader();
+                final String module = loader == null ? null : this.modules.get(loader);
+                if(module != null) {
+                    return module;
+                }
+            }
+        }
+
+        return this.getOwner(database);
+    }
+
+    /**
+     * @param database - Database
+     * @return - Module owning the database, the database name when none registered it
+     */
+    public final String getOwner(final Database database) {
+        final String owner = this.owners.get(database.name());
+        if(owner == null && database instanceof DatabaseShard) {
+            return this.getOwner(((DatabaseShard) database).getParent());
+        }
+
+        return owner == null ? database.name() : owner;
+    }
+
+    /**
+     * @param owner - Module name
+     * @return - Executors taken from the owner each turn, module-weights in database.json, 1 by default
+     */
+    public final int getOwnerWeight(final String owner) {
+        return this.ownerWeights.getOrDefault(owner, 1);
+    }
+
+    /**
+     * Override the weight of an owner set in database.json
+     *
+     * @param owner - Module name
+     * @param weight - Executors taken from the owner each turn
+     */
+    public final void setOwnerWeight(final String owner, final int weight) {
+        this.ownerWeights.put(owner, Math.max(1, weight));
+    }
+
+    /**
+     * Return the WriteBehindBuffer for a database, writes are flushed immediately
+     * unless write-behind is enabled for it in database.json
+     *
+     * @param database - Database
+     * @return - WriteBehindBuffer
+     */
+    public final WriteBehindBuffer getWriteBuffer(final Database database) {
+        final WriteBehindBuffer existing = this.buffers.get(database.name());
+        if(existing != null) {
+            return existing;
+        }
+
+        // Loading the source can block, so it is never done while holding the map's lock
+        this.getSource(database);
+        return this.buffers.computeIfAbsent(database.name(), name -> {
+            final DatabaseConnectionSettings settings = this.connectionSettings.getOrDefault(name, new DatabaseConnectionSettings());
+            final WriteBehindBuffer buffer = new WriteBehindBuffer(database, settings.isWriteBehind(), settings.getWriteBehindMaxPending());
+            if(settings.isWriteBehind()) {
+                buffer.schedule(settings.getWriteBehindInterval());
+            }
+
+            return buffer;
+        });
+    }
+
+    /**
+     * Create a List of tables, with schema-fingerprints only tables missing from their database are sent
+     * and existing tables whose definition changed are migrated
      *
      * @param tables - List<DatabaseTable>
      */
     @SuppressWarnings("UnstableApiUsage")
     public final ListenableFuture<Void> createTables(final List<DatabaseTable> tables) {
-        final Map<String, SQLExecutor> executors = new HashMap<>();
+        final Map<String, Database> databases = new HashMap<>();
+        final Map<String, List<DatabaseTable>> grouped = new HashMap<>();
         tables.forEach(table -> {
-            if(executors.containsKey(table.getDatabase().name())) {
-                executors.get(table.getDatabase().name()).add(table.build());
+            // A misdeclared table is skipped on its own rather than failing the other tables of its database
+            try {
+                table.validate();
+            } catch (final IllegalStateException ex) {
+                this.getModuleLogger().info("[SQLConnectionHandler] - Skipped creating '%s': %s", table.getName(), ex.getMessage());
+                return;
+            }
+
+            // Tables of a sharded database are created on every shard
+            final List<? extends Database> targets = table.getDatabase() instanceof ShardedDatabase
+                    ? this.getShards((ShardedDatabase) table.getDatabase())
+                    : Collections.singletonList(table.getDatabase());
+
+            targets.forEach(database -> {
+                databases.putIfAbsent(database.name(), database);
+                grouped.computeIfAbsent(database.name(), name -> new ArrayList<>()).add(table);
+            });
+        });
+
+        final List<ListenableFuture<Void>> created = new ArrayList<>();
+        grouped.forEach((name, list) -> {
+            final Database database = databases.get(name);
+            final ListenableFuture<Void> future;
+            if(this.settings.isSchemaFingerprints()) {
+                future = SQLSchema.create(database, list);
             } else {
-                executors.put(table.getDatabase().name(), table.build()); }
+                final SQLExecutor executor = new SQLExecutor(database);
+                list.forEach(table -> executor.add(table.build(database)));
+                future = executor.transaction();
+            }
+
+            created.add(Futures.transform(future,
+                    new Function<Void, Void>() {
+                        @Override
+                        public final @Nullable Void apply(final @Nullable Void ignored) {
+                            // Partitions are maintained once the tables of this database exist, whether or not others failed
+                            list.stream()
+                                    .filter(table -> table.getPartitioning() != null)
+                                    .forEach(table -> SQLConnectionHandler.this.maintain(database, table));
+                            return null;
+                        }
+                    }, this.executorService));
         });
 
-        return Futures.transform(Futures.allAsList(executors.values()
-                        .stream()
-                        .map(SQLExecutor::transaction)
-                        .collect(Collectors.toList())),
-                new Function<List<Void>, Void>() {
-                    @Override
-                    public final @Nullable Void apply(final @Nullable List<Void> voids) {
-                        return null;
-                    }
-                }, this.executorService);
+        return Futures.transform(Futures.allAsList(created), ignored -> null, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Start maintaining the partitions of a table on a database, tables already maintained are left running
+     *
+     * @param database - Database the table is on, a shard for sharded tables
+     * @param table - DatabaseTable with partitioning
+     */
+    private void maintain(final Database database, final DatabaseTable table) {
+        this.maintainers.computeIfAbsent(database.name() + "." + table.getName(), key -> {
+            final PartitionMaintainer maintainer = new PartitionMaintainer(database, table);
+            maintainer.schedule(this.settings.getPartitionMaintenanceInterval());
+
+            return maintainer;
+        });
     }
 
     public void incrementExecutions() {
-        this.executions++;
+        this.executions.increment();
     }
 
     public void incrementStatements(final long amount) {
-        this.statements += amount;
+        this.statements.add(amount);
+    }
+
+    public final long getExecutions() {
+        return this.executions.sum();
+    }
+
+    public final long getStatements() {
+        return this.statements.sum();
     }
 }
@@ -1,6 +1,5 @@
 package net.thenova.titan.module.sqldatabase.sql;
 
-import net.thenova.titan.Titan;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 /**
@@ -20,6 +19,32 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
  */
 public final class SQLDatabaseException extends Exception {
 
+    /**
+     * Renders a stack trace when first formatted by a logger, so nothing is rendered
+     * unless it is actually written. The result is kept, so it is rendered at most once
+     * however many log calls write it.
+     */
+    private static final class Trace {
+        private final Throwable throwable;
+        private final String prefix;
+
+        private String rendered;
+
+        private Trace(final Throwable throwable, final String prefix) {
+            this.throwable = throwable;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String toString() {
+            if(this.rendered == null) {
+                this.rendered = this.throwable == null ? "" : this.prefix + ExceptionUtils.getStackTrace(this.throwable);
+            }
+
+            return this.rendered;
+        }
+    }
+
     public SQLDatabaseException(final String message) {
         super(message);
 
@@ -33,19 +58,20 @@ public final class SQLDatabaseException extends Exception {
     }
 
     private void log() {
-        final String append = this.getCause() == null ? "" : "\n" + ExceptionUtils.getStackTrace(this.getCause());
+        final Trace trace = new Trace(this, "");
+        final Trace append = new Trace(this.getCause(), "\n");
 
-        Titan.INSTANCE.getLogger().debug("[SQLDatabaseException] - Exception thrown: {%s}\n%s%s",
+        SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[SQLDatabaseException] - Exception thrown: {%s}\n%s%s",
                 this.getMessage(),
-                ExceptionUtils.getStackTrace(this),
+                trace,
                 append);
         if(SQLConnectionHandler.INSTANCE.isDebugToConsole()) {
-            Titan.INSTANCE.getLogger().info("[SQLDatabaseException] - Exception thrown: {%s}\n%s%s",
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLDatabaseException] - Exception thrown: {%s}\n%s%s",
                     this.getMessage(),
-                    ExceptionUtils.getStackTrace(this),
+                    trace,
                     append);
         } else {
-            Titan.INSTANCE.getLogger().info("[SQLDatabaseException - Exception thrown, check debug.");
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLDatabaseException - Exception thrown, check debug.");
         }
     }
 }
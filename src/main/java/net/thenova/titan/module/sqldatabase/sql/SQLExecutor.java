@@ -2,18 +2,26 @@ package net.thenova.titan.module.sqldatabase.sql;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.zaxxer.hikari.HikariDataSource;
-import de.arraying.lumberjack.LLogger;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
-import net.thenova.titan.Titan;
+import net.thenova.titan.module.sqldatabase.sql.mapper.RowMapper;
+import net.thenova.titan.module.sqldatabase.sql.mapper.RowMappers;
+import net.thenova.titan.module.sqldatabase.sql.metrics.SQLPhase;
 import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.shard.ShardedDatabase;
+import org.mariadb.jdbc.MariaDbConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Copyright 2020 ipr0james
@@ -33,7 +41,10 @@ import java.util.stream.Collectors;
 public final class SQLExecutor {
     private enum Type {
         UPDATE,
-        SELECT
+        SELECT,
+        BATCH,
+        STREAM,
+        STEP
     }
 
     @AllArgsConstructor
@@ -41,20 +52,50 @@ public final class SQLExecutor {
     private static class SQLOperation {
         private final Type type;
         private final String query;
-        private final Object[] parameters;
+        private final SQLParameters parameters;
 
         private SQLConsumer result;
+        private List<SQLParameters> rows;
+        private SQLStreamConsumer<ResultSet> stream;
+        private SQLStep step;
+        private boolean cached = true;
     }
 
+    private final Database database;
     private final HikariDataSource source;
-    private final LLogger logger;
+    private final SQLStatementLogger logger;
+    private final SQLPlanSampler sampler;
     private final List<SQLOperation> operations = new ArrayList<>();
+    private final List<SettableFuture<?>> mapped = new ArrayList<>();
 
     private Connection connection;
+    private int batchSize;
+    private int fetchSize;
+    private boolean pipelining;
+    private boolean primary;
+    private SQLPriority priority = SQLPriority.NORMAL;
+    private String owner;
+    private ReplicaSet.Replica replica;
 
     public SQLExecutor(final Database database) {
+        this.database = database;
         this.source = SQLConnectionHandler.INSTANCE.getSource(database);
-        this.logger = SQLConnectionHandler.INSTANCE.getLogger();
+        this.logger = SQLConnectionHandler.INSTANCE.getStatementLogger();
+        this.sampler = SQLConnectionHandler.INSTANCE.getPlanSampler();
+        this.batchSize = SQLConnectionHandler.INSTANCE.getSettings().getBatchSize();
+        this.fetchSize = SQLConnectionHandler.INSTANCE.getSettings().getStreamFetchSize();
+        this.pipelining = SQLConnectionHandler.INSTANCE.isPipelining(database);
+        this.owner = SQLConnectionHandler.INSTANCE.resolveOwner(database);
+    }
+
+    /**
+     * Create an executor for the shard holding a key
+     *
+     * @param database ShardedDatabase
+     * @param key Shard key, such as a player UUID
+     */
+    public SQLExecutor(final ShardedDatabase database, final Object key) {
+        this(database.shard(key));
     }
 
     /**
@@ -65,7 +106,14 @@ public final class SQLExecutor {
      */
     public final SQLExecutor add(final SQLExecutor... executors) {
         Arrays.stream(executors)
-                .forEach(executor -> this.operations.addAll(executor.operations));
+                .forEach(executor -> {
+                    this.operations.addAll(executor.operations);
+                    this.mapped.addAll(executor.mapped);
+                    this.primary |= executor.primary;
+                    if(executor.priority.ordinal() < this.priority.ordinal()) {
+                        this.priority = executor.priority;
+                    }
+                });
 
         return this;
     }
@@ -78,6 +126,17 @@ public final class SQLExecutor {
      * @return SQLExecutor
      */
     public final SQLExecutor queryUpdate(final String query, final Object... parameters) {
+        return this.queryUpdate(query, SQLParameters.of(parameters));
+    }
+
+    /**
+     * Query for adding an update to the transaction with typed parameters
+     *
+     * @param query String
+     * @param parameters SQLParameters, not to be changed until the executor completes
+     * @return SQLExecutor
+     */
+    public final SQLExecutor queryUpdate(final String query, final SQLParameters parameters) {
         this.operations.add(new SQLOperation(Type.UPDATE, query, parameters));
 
         return this;
@@ -91,12 +150,168 @@ public final class SQLExecutor {
      * @return - SQLExecutor
      */
     public final SQLExecutor querySelect(final String query, final Object... parameters) {
+        return this.querySelect(query, SQLParameters.of(parameters));
+    }
+
+    /**
+     * Query for retrieval of data with typed parameters
+     *
+     * @param query String
+     * @param parameters SQLParameters, not to be changed until the executor completes
+     * @return - SQLExecutor
+     */
+    public final SQLExecutor querySelect(final String query, final SQLParameters parameters) {
         final SQLOperation operation = new SQLOperation(Type.SELECT, query, parameters);
         this.operations.add(operation);
 
         return this;
     }
 
+    /**
+     * Query for a batched update, rows are added through {@link #bind(Object...)}
+     * and sent using a single PreparedStatement
+     *
+     * @param query String
+     * @return SQLExecutor
+     */
+    public final SQLExecutor queryBatch(final String query) {
+        final SQLOperation operation = new SQLOperation(Type.BATCH, query, SQLParameters.of(null));
+        operation.rows = new ArrayList<>();
+        this.operations.add(operation);
+
+        return this;
+    }
+
+    /**
+     * Add a row of parameters to the last queryBatch
+     *
+     * @param parameters Object
+     * @return SQLExecutor
+     */
+    public final SQLExecutor bind(final Object... parameters) {
+        return this.bind(SQLParameters.of(parameters));
+    }
+
+    /**
+     * Add a row of typed parameters to the last queryBatch, primitives bound through
+     * {@link SQLParameters#bindInt(int)} and {@link SQLParameters#bindLong(long)} are sent without boxing
+     *
+     * @param parameters SQLParameters, not to be changed until the executor completes
+     * @return SQLExecutor
+     */
+    public final SQLExecutor bind(final SQLParameters parameters) {
+        try {
+            if (this.operations.isEmpty()) {
+                throw new SQLDatabaseException("Tried to bind parameters when no queries were present.");
+            }
+
+            final SQLOperation operation = this.operations.get(this.operations.size()-1);
+            if(operation.type != Type.BATCH) {
+                throw new SQLDatabaseException("Last operation was not a BATCH");
+            }
+
+            operation.rows.add(parameters);
+        } catch (final SQLDatabaseException ignored) {}
+
+        return this;
+    }
+
+    /**
+     * Set the amount of rows sent per executeBatch, defaults to batch-size in database.json
+     *
+     * @param batchSize int
+     * @return SQLExecutor
+     */
+    public final SQLExecutor batchSize(final int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+
+        return this;
+    }
+
+    /**
+     * Query for retrieval of data row by row without buffering the full result in memory,
+     * rows are handed to {@link #stream(SQLStreamConsumer)}
+     *
+     * @param query String
+     * @param parameters Object
+     * @return SQLExecutor
+     */
+    public final SQLExecutor queryStream(final String query, final Object... parameters) {
+        return this.queryStream(query, SQLParameters.of(parameters));
+    }
+
+    /**
+     * Query for retrieval of data row by row with typed parameters
+     *
+     * @param query String
+     * @param parameters SQLParameters, not to be changed until the executor completes
+     * @return SQLExecutor
+     */
+    public final SQLExecutor queryStream(final String query, final SQLParameters parameters) {
+        this.operations.add(new SQLOperation(Type.STREAM, query, parameters));
+
+        return this;
+    }
+
+    /**
+     * Set the amount of rows read from the server at a time by queryStream,
+     * defaults to stream-fetch-size in database.json
+     *
+     * @param fetchSize int
+     * @return SQLExecutor
+     */
+    public final SQLExecutor fetchSize(final int fetchSize) {
+        this.fetchSize = Math.max(1, fetchSize);
+
+        return this;
+    }
+
+    /**
+     * Handle rows of the last queryStream
+     *
+     * @param consumer Called for every row while it returns true
+     * @return SQLExecutor
+     */
+    public final SQLExecutor stream(final SQLStreamConsumer<ResultSet> consumer) {
+        try {
+            if (this.operations.isEmpty()) {
+                throw new SQLDatabaseException("Tried to stream results when no queries were present.");
+            }
+
+            final SQLOperation operation = this.operations.get(this.operations.size()-1);
+            if(operation.type != Type.STREAM) {
+                throw new SQLDatabaseException("Last operation was not a STREAM");
+            }
+
+            operation.stream = consumer;
+        } catch (final SQLDatabaseException ignored) {}
+
+        return this;
+    }
+
+    /**
+     * Handle rows of the last queryStream mapped to a type
+     *
+     * @param type Class rows are mapped to, see {@link RowMappers}
+     * @param consumer Called for every row while it returns true
+     * @param <T> Type rows are mapped to
+     * @return SQLExecutor
+     */
+    public final <T> SQLExecutor stream(final Class<T> type, final SQLStreamConsumer<T> consumer) {
+        return this.stream(new SQLStreamConsumer<ResultSet>() {
+            private RowMapper<T> mapper;
+
+            @Override
+            public boolean accept(final ResultSet row) throws SQLException {
+                if(this.mapper == null) {
+                    this.mapper = RowMappers.of(type, row);
+                }
+
+                return consumer.accept(this.mapper.map(row));
+            }
+        });
+    }
+
     /**
      * Handle results for querySelects
      *
@@ -126,29 +341,157 @@ public final class SQLExecutor {
         return this;
     }
 
+    /**
+     * Always read the last querySelect from the database, skipping the result cache
+     *
+     * @return SQLExecutor
+     */
+    public final SQLExecutor uncached() {
+        try {
+            if (this.operations.isEmpty()) {
+                throw new SQLDatabaseException("Tried to skip the cache when no queries were present.");
+            }
+
+            final SQLOperation operation = this.operations.get(this.operations.size()-1);
+            if(operation.type != Type.SELECT) {
+                throw new SQLDatabaseException("Last operation was not a SELECT");
+            }
+
+            operation.cached = false;
+        } catch (final SQLDatabaseException ignored) {}
+
+        return this;
+    }
+
+    /**
+     * Run a step once every operation queued before it has completed, on the same connection and in the same
+     * transaction. Values read by earlier results can be used to queue further operations from the step,
+     * which run before anything queued after it, so a read-modify-write needs one connection and one commit.
+     * Executors with steps always run on the primary.
+     *
+     * @param step SQLStep, must not commit the executor
+     * @return SQLExecutor
+     */
+    public final SQLExecutor then(final SQLStep step) {
+        final SQLOperation operation = new SQLOperation(Type.STEP, "", SQLParameters.of(null));
+        operation.step = step;
+        this.operations.add(operation);
+
+        return this;
+    }
+
+    /**
+     * Set the priority class the executor is queued in, NORMAL unless set
+     *
+     * @param priority SQLPriority
+     * @return current object
+     */
+    public final SQLExecutor priority(final SQLPriority priority) {
+        this.priority = priority;
+
+        return this;
+    }
+
+    /**
+     * Set the module the executor is queued for, executors of different owners take turns.
+     * Defaults to the module that registered the database.
+     *
+     * @param owner Module name
+     * @return current object
+     */
+    public final SQLExecutor owner(final String owner) {
+        this.owner = owner;
+
+        return this;
+    }
+
+    /**
+     * Run on the primary even when every operation only reads, for callers that need to see their own writes
+     *
+     * @return current object
+     */
+    public final SQLExecutor primary() {
+        this.primary = true;
+
+        return this;
+    }
+
+    /**
+     * Map every row of the last querySelect
+     *
+     * @param type Class rows are mapped to, see {@link RowMappers}
+     * @param <T> Type rows are mapped to
+     * @return List of rows, completed once the executor has been committed
+     */
+    public final <T> ListenableFuture<List<T>> resultList(final Class<T> type) {
+        final SettableFuture<List<T>> future = SettableFuture.create();
+        this.mapped.add(future);
+
+        this.result(res -> {
+            final RowMapper<T> mapper = RowMappers.of(type, res);
+            final List<T> rows = new ArrayList<>();
+            while(res.next()) {
+                rows.add(mapper.map(res));
+            }
+
+            future.set(rows);
+        });
+
+        return future;
+    }
+
+    /**
+     * Map the first row of the last querySelect
+     *
+     * @param type Class the row is mapped to, see {@link RowMappers}
+     * @param <T> Type the row is mapped to
+     * @return Optional row, completed once the executor has been committed
+     */
+    public final <T> ListenableFuture<Optional<T>> resultFirst(final Class<T> type) {
+        final SettableFuture<Optional<T>> future = SettableFuture.create();
+        this.mapped.add(future);
+        this.result(res -> future.set(res.next() ? Optional.ofNullable(RowMappers.of(type, res).map(res)) : Optional.empty()));
+
+        return future;
+    }
+
     /**
      * Handle commit all objects to SQL for results and updates
      *
      * @return Void called for completion or future failure.
      */
     public final ListenableFuture<Void> commit() {
+        return SQLExecutor.discard(this.commitBatch());
+    }
+
+    /**
+     * Handle commit all objects to SQL for results and updates
+     *
+     * @return Update counts for every executeBatch sent, in order.
+     */
+    public final ListenableFuture<List<int[]>> commitBatch() {
         if(this.source == null) {
-            Titan.INSTANCE.getLogger().debug("[SQLDatabase] [SQLExecutor] - Avoided commit due to connection source null");
-            return Futures.immediateFuture(null);
+            return this.complete(this.unsourced());
         }
 
         final long start = System.currentTimeMillis();
-        return SQLConnectionHandler.INSTANCE.getExecutorService()
-                .submit(() -> {
+        final long queued = System.nanoTime();
+        return this.complete(SQLConnectionHandler.INSTANCE.getLane(this.database)
+                .submit(this.priority, this.owner, () -> {
                     final long time = System.currentTimeMillis();
-                    this.handle();
-                    this.close();
+                    this.record(SQLPhase.QUEUE, queued);
+                    final List<int[]> counts;
+                    try {
+                        counts = this.handle(false);
+                    } finally {
+                        this.close();
+                    }
 
-                    this.logger.info("[SQLExecutor] [handleCommit] - Commit completion, internal: %d, full: %d",
+                    this.logger.completion("handleCommit", "Commit",
                             System.currentTimeMillis() - start,
                             System.currentTimeMillis() - time);
-                    return null;
-        });
+                    return counts;
+        }));
     }
 
     /**
@@ -157,69 +500,453 @@ public final class SQLExecutor {
      * @return Void called for completion or future failure.
      */
     public final ListenableFuture<Void> transaction() {
+        return SQLExecutor.discard(this.transactionBatch());
+    }
+
+    /**
+     * Handle bulk statement update in a non-autocommit environment
+     *
+     * @return Update counts for every executeBatch sent, in order.
+     */
+    public final ListenableFuture<List<int[]>> transactionBatch() {
         if(this.source == null) {
-            Titan.INSTANCE.getLogger().debug("[SQLDatabase] [SQLExecutor] - Avoided commit due to connection source null");
-            return Futures.immediateVoidFuture();
+            return this.complete(this.unsourced());
         }
 
         final long start = System.currentTimeMillis();
-        return SQLConnectionHandler.INSTANCE.getExecutorService()
-                .submit(() -> {
+        final long queued = System.nanoTime();
+        return this.complete(SQLConnectionHandler.INSTANCE.getLane(this.database)
+                .submit(this.priority, this.owner, () -> {
                     final long time = System.currentTimeMillis();
-                    final Connection connection = this.connection();
+                    this.record(SQLPhase.QUEUE, queued);
+                    final List<int[]> counts;
+                    try {
+                        final Connection connection = this.connection();
+
+                        connection.setAutoCommit(false);
+                        try {
+                            counts = this.handle(true);
 
-                    connection.setAutoCommit(false);
-                    this.handle();
-                    connection.commit();
-                    this.close();
+                            final long committing = System.nanoTime();
+                            connection.commit();
+                            this.record(SQLPhase.COMMIT, committing);
+                        } catch (final SQLDatabaseException | SQLException ex) {
+                            connection.rollback();
+                            throw ex;
+                        }
 
-                    this.logger.info("[SQLExecutor] [handleTransaction] - Transaction completion, internal: %d, full: %d",
+                        this.operations.stream()
+                                .filter(operation -> operation.type == Type.UPDATE || operation.type == Type.BATCH)
+                                .forEach(operation -> SQLConnectionHandler.INSTANCE.getResultCache().invalidate(this.database.name(), operation.query));
+                    } finally {
+                        this.close();
+                    }
+
+                    this.logger.completion("handleTransaction", "Transaction",
                             System.currentTimeMillis() - start,
                             System.currentTimeMillis() - time);
 
-                    return null;
-        });
+                    return counts;
+        }));
+    }
+
+    /**
+     * Result of committing without a connection source. Statements for a sharded database need a shard key
+     * to be routed, so they fail rather than being dropped.
+     *
+     * @return Update counts, failed when statements were queued for a sharded database
+     */
+    private ListenableFuture<List<int[]>> unsourced() {
+        if(this.database instanceof ShardedDatabase && !this.operations.isEmpty()) {
+            return Futures.immediateFailedFuture(new SQLDatabaseException("Executor for sharded database " + this.database.name()
+                    + " has no shard key, create it with new SQLExecutor(database, key)"));
+        }
+
+        SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[SQLDatabase] [SQLExecutor] - Avoided commit due to connection source null");
+        return Futures.immediateFuture(Collections.emptyList());
+    }
+
+    /**
+     * Fail mapped results that were not completed by the time the executor finished
+     *
+     * @param future ListenableFuture of the executor
+     * @return ListenableFuture of the executor
+     */
+    private <T> ListenableFuture<T> complete(final ListenableFuture<T> future) {
+        // Steps can map results once running, so their futures are looked at on completion
+        if(this.mapped.isEmpty() && this.operations.stream().noneMatch(operation -> operation.type == Type.STEP)) {
+            return future;
+        }
+
+        future.addListener(() -> {
+            Throwable cause;
+            try {
+                Futures.getDone(future);
+                cause = new SQLException("Executor completed without producing a result");
+            } catch (final ExecutionException ex) {
+                cause = ex.getCause();
+            } catch (final CancellationException ex) {
+                cause = ex;
+            }
+
+            for(final SettableFuture<?> result : this.mapped) {
+                result.setException(cause);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return future;
+    }
+
+    /**
+     * Drop batch update counts for callers only interested in completion
+     *
+     * @param future ListenableFuture
+     * @return Void called for completion or future failure.
+     */
+    private static ListenableFuture<Void> discard(final ListenableFuture<List<int[]>> future) {
+        return Futures.transform(future, counts -> null, MoreExecutors.directExecutor());
     }
 
     /**
      * Handle all Operations for executor when called
+     *
+     * @param transaction Whether operations are running in a transaction, results are then never cached
+     *                    and the caller invalidates cached results once committed
      */
-    private void handle() throws SQLDatabaseException {
+    private List<int[]> handle(final boolean transaction) throws SQLDatabaseException {
         SQLConnectionHandler.INSTANCE.incrementExecutions();
         SQLConnectionHandler.INSTANCE.incrementStatements(this.operations.size());
+        this.connection();
 
-        for(final SQLOperation operation : this.operations) {
-            final long time = System.currentTimeMillis();
-            try {
-                final PreparedStatement statement = SQLExecutor.this.statement(operation.query, operation.parameters);
-                if (operation.type == Type.SELECT) {
-                    final ResultSet result = statement.executeQuery();
-
-                    if (operation.result != null) {
-                        operation.result.accept(result);
-                    } else {
-                        throw new SQLDatabaseException("Failed to return ResultSet as operation.result was null");
-                    }
+        final List<int[]> counts = new ArrayList<>();
+        final List<SQLOperation> pipeline = new ArrayList<>();
+        for(int i = 0; i < this.operations.size(); i++) {
+            final SQLOperation operation = this.operations.get(i);
+            if(this.pipelining && SQLExecutor.isPipelined(operation)) {
+                pipeline.add(operation);
+                continue;
+            }
+
+            this.pipeline(pipeline, transaction, counts);
+            pipeline.clear();
+
+            if(operation.type == Type.STEP) {
+                this.step(operation, i);
+            } else {
+                this.execute(operation, transaction, counts);
+            }
+        }
+        this.pipeline(pipeline, transaction, counts);
+
+        return counts;
+    }
+
+    /**
+     * Run a step, operations it queued are moved from the end of the list to directly after it
+     *
+     * @param operation SQLOperation of the step
+     * @param index Position of the step in the operations
+     */
+    private void step(final SQLOperation operation, final int index) throws SQLDatabaseException {
+        final int size = this.operations.size();
+        try {
+            operation.step.accept(this);
+        } catch (final SQLException | RuntimeException ex) {
+            throw new SQLDatabaseException("Failed to run step of executor for database " + this.database.name(), ex);
+        }
+
+        final List<SQLOperation> queued = this.operations.subList(size, this.operations.size());
+        if(queued.isEmpty()) {
+            return;
+        }
+
+        SQLConnectionHandler.INSTANCE.incrementStatements(queued.size());
+        final List<SQLOperation> moved = new ArrayList<>(queued);
+        queued.clear();
+        this.operations.addAll(index + 1, moved);
+    }
+
+    /**
+     * Run a single operation in its own round trip
+     *
+     * @param operation SQLOperation
+     * @param transaction Whether the operation is running in a transaction
+     * @param counts Update counts of batches sent so far
+     */
+    private void execute(final SQLOperation operation, final boolean transaction, final List<int[]> counts) throws SQLDatabaseException {
+        final long time = System.nanoTime();
+        try {
+            if (operation.type == Type.SELECT) {
+                if (operation.result == null) {
+                    throw new SQLDatabaseException("Failed to return ResultSet as operation.result was null");
+                }
+
+                this.select(operation, transaction);
+            } else if (operation.type == Type.STREAM) {
+                if (operation.stream == null) {
+                    throw new SQLDatabaseException("Failed to stream ResultSet as operation.stream was null");
+                }
+
+                this.stream(operation);
+            } else {
+                long mark = System.nanoTime();
+                final PreparedStatement statement = this.statement(operation.query, operation.parameters);
+                mark = this.record(SQLPhase.PREPARE, operation.query, mark);
+
+                if (operation.type == Type.BATCH) {
+                    counts.addAll(this.batch(statement, operation.rows));
                 } else {
                     statement.execute();
                 }
+                this.record(SQLPhase.EXECUTE, operation.query, mark);
+
+                if (!transaction) {
+                    SQLConnectionHandler.INSTANCE.getResultCache().invalidate(this.database.name(), operation.query);
+                }
+            }
+        } catch (final SQLException ex) {
+            throw new SQLDatabaseException("Failed to execute query '"
+                    + operation.query
+                    + "' with ["
+                    + SQLStatementLogger.parameters(operation.parameters.toArray())
+                    + "]", ex);
+        }
+
+        final long nanos = System.nanoTime() - time;
+        this.logger.statement(nanos,
+                operation.query,
+                operation.parameters,
+                operation.type == Type.BATCH ? operation.rows.size() : -1);
+        if(operation.type != Type.BATCH) {
+            this.sampler.sample(this.database, this.source, nanos, operation.query, operation.parameters);
+        }
+    }
+
+    /**
+     * Send consecutive UPDATE and SELECT operations as one multi-statement packet, results are read back
+     * in order and handed to each operation. Needs allowMultiQueries, enabled by pipelining in database.json.
+     *
+     * @param operations Operations in the order they were queued
+     * @param transaction Whether the operations are running in a transaction
+     * @param counts Update counts of batches sent so far
+     */
+    private void pipeline(final List<SQLOperation> operations, final boolean transaction, final List<int[]> counts) throws SQLDatabaseException {
+        if(operations.size() < 2) {
+            for(final SQLOperation operation : operations) {
+                this.execute(operation, transaction, counts);
+            }
+            return;
+        }
+
+        final long time = System.nanoTime();
+        final SQLResultCache cache = SQLConnectionHandler.INSTANCE.getResultCache();
+        final SQLResultCache.Lookup[] lookups = new SQLResultCache.Lookup[operations.size()];
+        final StringBuilder query = new StringBuilder();
+        final List<Object> parameters = new ArrayList<>();
+
+        boolean written = false;
+        for(int i = 0; i < operations.size(); i++) {
+            final SQLOperation operation = operations.get(i);
+
+            // A cached result is only valid while no earlier statement in the pipeline has written
+            if(operation.type == Type.SELECT && !transaction && !written && operation.cached && cache.isEnabled()) {
+                lookups[i] = cache.lookup(this.database.name(), operation.query, operation.parameters.toArray());
+                if(lookups[i] != null && lookups[i].hit() != null) {
+                    continue;
+                }
+            }
+            written |= operation.type != Type.SELECT;
+
+            if(query.length() > 0) {
+                query.append(";\n");
+            }
+            query.append(SQLExecutor.trim(operation.query));
+            parameters.addAll(Arrays.asList(operation.parameters.toArray()));
+        }
+
+        final Object[] bound = parameters.toArray();
+        final String sql = query.toString();
+        try (final PreparedStatement statement = sql.isEmpty() ? null : this.pipelineStatement(sql, bound)) {
+            long mark = time;
+            boolean sent = false;
+            boolean result = false;
+
+            for(int i = 0; i < operations.size(); i++) {
+                final SQLOperation operation = operations.get(i);
+                final SQLResultCache.Lookup lookup = lookups[i];
+
+                if(lookup != null && lookup.hit() != null) {
+                    final long start = System.nanoTime();
+                    operation.result.accept(lookup.hit());
+                    this.record(SQLPhase.CONSUME, operation.query, start);
+                    continue;
+                }
+
+                if(!sent) {
+                    mark = this.record(SQLPhase.PREPARE, mark);
+                    result = statement.execute();
+                    mark = this.record(SQLPhase.EXECUTE, mark);
+                    sent = true;
+                } else {
+                    result = statement.getMoreResults();
+                }
+
+                if(operation.type == Type.SELECT) {
+                    if(!result) {
+                        throw new SQLException("Expected a ResultSet for '" + operation.query + "' but received an update count");
+                    }
+
+                    final long start = System.nanoTime();
+                    // Replicas can lag behind a write that invalidated the query, so only primary reads are cached
+                    operation.result.accept(lookup == null || this.replica != null ? statement.getResultSet() : lookup.store(statement.getResultSet()));
+                    this.record(SQLPhase.CONSUME, operation.query, start);
+                } else if(!transaction) {
+                    SQLConnectionHandler.INSTANCE.getResultCache().invalidate(this.database.name(), operation.query);
+                }
+            }
+        } catch (final SQLException ex) {
+            throw new SQLDatabaseException("Failed to execute pipelined query '"
+                    + sql
+                    + "' with ["
+                    + SQLStatementLogger.parameters(bound)
+                    + "]", ex);
+        }
+
+        this.logger.statement(System.nanoTime() - time, sql, SQLParameters.of(bound), -1);
+    }
+
+    /**
+     * @param operation SQLOperation
+     * @return Whether the operation can share a multi-statement packet with its neighbours
+     */
+    private static boolean isPipelined(final SQLOperation operation) {
+        return operation.type == Type.UPDATE || (operation.type == Type.SELECT && operation.result != null);
+    }
+
+    /**
+     * Strip trailing semicolons so statements can be joined
+     *
+     * @param query SQL
+     * @return SQL without trailing semicolons or whitespace
+     */
+    private static String trim(final String query) {
+        int end = query.length();
+        while(end > 0 && (query.charAt(end - 1) == ';' || Character.isWhitespace(query.charAt(end - 1)))) {
+            end--;
+        }
+
+        return query.substring(0, end);
+    }
+
+    /**
+     * Run a SELECT operation, reading through the result cache when enabled
+     *
+     * @param operation SQLOperation
+     * @param transaction Whether the operation is running in a transaction
+     * @throws SQLException Thrown on failure executing or consuming the query
+     * @throws SQLDatabaseException Thrown on failure preparing the query
+     */
+    private void select(final SQLOperation operation, final boolean transaction) throws SQLException, SQLDatabaseException {
+        final SQLResultCache cache = SQLConnectionHandler.INSTANCE.getResultCache();
+        final SQLResultCache.Lookup lookup = !transaction && operation.cached && cache.isEnabled()
+                ? cache.lookup(this.database.name(), operation.query, operation.parameters.toArray())
+                : null;
+
+        if (lookup != null && lookup.hit() != null) {
+            final long start = System.nanoTime();
+            operation.result.accept(lookup.hit());
+            this.record(SQLPhase.CONSUME, operation.query, start);
+            return;
+        }
+
+        long mark = System.nanoTime();
+        final PreparedStatement statement = this.statement(operation.query, operation.parameters);
+        mark = this.record(SQLPhase.PREPARE, operation.query, mark);
+
+        final ResultSet result = statement.executeQuery();
+        mark = this.record(SQLPhase.EXECUTE, operation.query, mark);
+
+        // Replicas can lag behind a write that invalidated the query, so only primary reads are cached
+        operation.result.accept(lookup == null || this.replica != null ? result : lookup.store(result));
+        this.record(SQLPhase.CONSUME, operation.query, mark);
+    }
+
+    /**
+     * Run a STREAM operation, the statement is closed once the consumer stops or rows run out.
+     * Stopping early cancels the query so the remaining rows are not read off the connection.
+     *
+     * @param operation SQLOperation
+     * @throws SQLException Thrown on failure executing or consuming the query
+     * @throws SQLDatabaseException Thrown on failure preparing the query
+     */
+    private void stream(final SQLOperation operation) throws SQLException, SQLDatabaseException {
+        long mark = System.nanoTime();
+        final PreparedStatement statement;
+        try {
+            statement = this.connection().prepareStatement(operation.query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        } catch (final SQLException ex) {
+            throw new SQLDatabaseException("Failed when building PreparedStatement for query '" + operation.query + "'", ex);
+        }
+
+        boolean cancel = false;
+        try {
+            statement.setFetchSize(this.fetchSize);
+            operation.parameters.apply(statement);
+            mark = this.record(SQLPhase.PREPARE, operation.query, mark);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                mark = this.record(SQLPhase.EXECUTE, operation.query, mark);
+                while (res.next()) {
+                    if (!operation.stream.accept(res)) {
+                        cancel = true;
+                        statement.cancel();
+                        break;
+                    }
+                }
+            } catch (final SQLException ex) {
+                if (!cancel) {
+                    throw ex;
+                }
+            }
+            this.record(SQLPhase.CONSUME, operation.query, mark);
+        } finally {
+            try {
+                statement.close();
             } catch (final SQLException ex) {
-                throw new SQLDatabaseException("Failed to execute query '"
-                        + operation.query
-                        + "' with ["
-                        + Arrays.stream(operation.parameters)
-                        .map(Object::toString)
-                        .collect(Collectors.joining(", "))
-                        + "]", ex);
+                if (!cancel) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Send all rows of a batch operation, split in to batchSize chunks
+     *
+     * @param statement PreparedStatement shared by every row
+     * @param rows Parameters of each row
+     * @return Update counts for every executeBatch sent
+     * @throws SQLException Thrown on failure binding or executing the batch
+     */
+    private List<int[]> batch(final PreparedStatement statement, final List<SQLParameters> rows) throws SQLException {
+        final List<int[]> counts = new ArrayList<>();
+
+        int pending = 0;
+        for(final SQLParameters row : rows) {
+            row.apply(statement);
+            statement.addBatch();
+
+            if(++pending == this.batchSize) {
+                counts.add(statement.executeBatch());
+                pending = 0;
             }
+        }
 
-            this.logger.info("[SQLExecutor] [handle] - Completion time %d, Parameters [%s], Statement: '%s'",
-                    System.currentTimeMillis() - time,
-                    Arrays.stream(operation.parameters)
-                            .map(Object::toString)
-                            .collect(Collectors.joining(", ")),
-                    operation.query);
+        if(pending > 0) {
+            counts.add(statement.executeBatch());
         }
+
+        return counts;
     }
 
     /**
@@ -230,27 +957,45 @@ public final class SQLExecutor {
      * @return PreparedStatement
      * @throws SQLDatabaseException Custom event for logging
      */
-    private PreparedStatement statement(final String query, final Object... parameters) throws SQLDatabaseException {
+    private PreparedStatement statement(final String query, final SQLParameters parameters) throws SQLDatabaseException {
         try {
             final PreparedStatement statement = this.connection()
                     .prepareStatement(query);
-            for (int i = 0; i < parameters.length; i++) {
-                final Object param = parameters[i];
-                if(param == null) {
-                    statement.setNull(i + 1, Types.JAVA_OBJECT);
-                } else {
-                    statement.setObject(i + 1, param);
-                }
-            }
+            parameters.apply(statement);
 
             return statement;
         } catch (final SQLException ex) {
             throw new SQLDatabaseException("Failed when building PreparedStatement for query '" + query +
-                    "' with [" + Arrays.stream(parameters).map(Object::toString).collect(Collectors.joining(", ")) + "]" );
+                    "' with [" + SQLStatementLogger.parameters(parameters.toArray()) + "]", ex);
         }
     }
 
 
+    /**
+     * Build a client-side PreparedStatement for a multi-statement query. The server cannot prepare more than
+     * one statement, so the MariaDB connection is asked for a client-side statement directly rather than
+     * failing a server-side prepare first.
+     *
+     * @param query Statements joined by semicolons
+     * @param parameters Parameters of every statement, in order
+     * @return PreparedStatement, closed by the caller
+     * @throws SQLDatabaseException Custom event for logging
+     */
+    private PreparedStatement pipelineStatement(final String query, final Object[] parameters) throws SQLDatabaseException {
+        try {
+            final Connection connection = this.connection();
+            final PreparedStatement statement = connection.isWrapperFor(MariaDbConnection.class)
+                    ? connection.unwrap(MariaDbConnection.class).clientPrepareStatement(query)
+                    : connection.prepareStatement(query);
+            SQLParameters.apply(statement, parameters);
+
+            return statement;
+        } catch (final SQLException ex) {
+            throw new SQLDatabaseException("Failed when building PreparedStatement for query '" + query +
+                    "' with [" + SQLStatementLogger.parameters(parameters) + "]", ex);
+        }
+    }
+
     /**
      * Establish the Java SQL connection
      *
@@ -259,11 +1004,16 @@ public final class SQLExecutor {
      */
     private Connection connection() throws SQLDatabaseException {
         if(this.connection == null) {
-            try {
-                this.connection = this.source.getConnection();
-            } catch (final SQLException ex) {
-                throw new SQLDatabaseException("Connection could not be established for source pool: " + this.source.getPoolName(), ex);
+            final long start = System.nanoTime();
+            this.connection = this.replicaConnection();
+            if(this.connection == null) {
+                try {
+                    this.connection = this.source.getConnection();
+                } catch (final SQLException ex) {
+                    throw new SQLDatabaseException("Connection could not be established for source pool: " + this.source.getPoolName(), ex);
+                }
             }
+            this.record(SQLPhase.ACQUIRE, start);
         }
 
         try {
@@ -277,14 +1027,79 @@ public final class SQLExecutor {
         return this.connection;
     }
 
+    /**
+     * Borrow a connection from the least loaded replica when every operation only reads
+     * and the executor was not forced to the primary
+     *
+     * @return Connection, null when the primary is to be used
+     */
+    private Connection replicaConnection() {
+        if(this.primary || this.operations.isEmpty() || !this.operations.stream().allMatch(operation -> operation.type == Type.SELECT || operation.type == Type.STREAM)) {
+            return null;
+        }
+
+        final ReplicaSet replicas = SQLConnectionHandler.INSTANCE.getReplicaSet(this.database);
+        if(replicas == null || (this.replica = replicas.acquire()) == null) {
+            return null;
+        }
+
+        try {
+            return this.replica.getSource().getConnection();
+        } catch (final SQLException ex) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[SQLDatabase] [SQLExecutor] - Replica '%s' unavailable, reading from primary: %s",
+                    this.replica.getName(),
+                    ex.getMessage());
+            this.replica.release();
+            this.replica = null;
+
+            return null;
+        }
+    }
+
+    /**
+     * Record a phase of the whole execution
+     *
+     * @param phase SQLPhase
+     * @param since System.nanoTime() the phase started
+     * @return System.nanoTime() the phase ended
+     */
+    private long record(final SQLPhase phase, final long since) {
+        final long now = System.nanoTime();
+        SQLConnectionHandler.INSTANCE.getMetrics().record(this.database.name(), phase, now - since);
+
+        return now;
+    }
+
+    /**
+     * Record a phase of a single statement
+     *
+     * @param phase SQLPhase
+     * @param query SQL of the statement
+     * @param since System.nanoTime() the phase started
+     * @return System.nanoTime() the phase ended
+     */
+    private long record(final SQLPhase phase, final String query, final long since) {
+        final long now = System.nanoTime();
+        SQLConnectionHandler.INSTANCE.getMetrics().record(this.database.name(), query, phase, now - since);
+
+        return now;
+    }
+
     /**
      * Handle closing of SQLConnections
      *
      * @throws SQLException SQLException for error connection
      */
     private void close() throws SQLException {
-        if(this.connection != null && !this.connection.isClosed()) {
-            this.connection.close();
+        try {
+            if(this.connection != null && !this.connection.isClosed()) {
+                this.connection.close();
+            }
+        } finally {
+            if(this.replica != null) {
+                this.replica.release();
+                this.replica = null;
+            }
         }
     }
 }
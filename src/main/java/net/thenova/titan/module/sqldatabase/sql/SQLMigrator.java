@@ -0,0 +1,776 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.thenova.titan.module.sqldatabase.settings.DatabaseConnectionSettings;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+import net.thenova.titan.module.sqldatabase.tables.column.TableColumn;
+import net.thenova.titan.module.sqldatabase.tables.index.TableIndex;
+import net.thenova.titan.module.sqldatabase.tables.partition.TablePartitioning;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class SQLMigrator {
+
+    public enum Mode {
+        /* Changed tables are only logged */
+        OFF,
+        /* ALTERs that run with ALGORITHM=INSTANT or INPLACE, LOCK=NONE, anything else is logged */
+        INPLACE,
+        /* As INPLACE, falling back to copying the table to a shadow table kept in sync by triggers */
+        ONLINE;
+
+        public static Mode parse(final String name) {
+            for(final Mode mode : Mode.values()) {
+                if(mode.name().equalsIgnoreCase(name)) {
+                    return mode;
+                }
+            }
+
+            return OFF;
+        }
+    }
+
+    /* ER_UNKNOWN_ALTER_ALGORITHM, ER_ALTER_OPERATION_NOT_SUPPORTED and ER_ALTER_OPERATION_NOT_SUPPORTED_REASON */
+    private static final List<Integer> UNSUPPORTED = Arrays.asList(1800, 1845, 1846);
+    private static final List<String> INTEGERS = Arrays.asList("tinyint", "smallint", "mediumint", "int", "integer", "bigint");
+    private static final Pattern TYPE = Pattern.compile("^([a-z]+)\\s*(?:\\(([^)]*)\\))?");
+    /* Counts of a chunk taken before its copy is given up as differing */
+    private static final int VERIFY_ATTEMPTS = 5;
+
+    private static final class Column {
+        private final String type;
+        private final boolean nullable;
+        private final String defaultValue;
+        private final boolean autoIncrement;
+
+        private Column(final String type, final boolean nullable, final String defaultValue, final boolean autoIncrement) {
+            this.type = type;
+            this.nullable = nullable;
+            this.defaultValue = defaultValue;
+            this.autoIncrement = autoIncrement;
+        }
+    }
+
+    private final Database database;
+    private final HikariDataSource source;
+    private final Mode mode;
+    private final int chunkSize;
+    private final long throttle;
+
+    SQLMigrator(final Database database, final HikariDataSource source, final Mode mode, final int chunkSize, final long throttle) {
+        this.database = database;
+        this.source = source;
+        this.mode = mode;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.throttle = Math.max(0, throttle);
+    }
+
+    /**
+     * Bring existing tables in line with their declared columns and keys, one table at a time.
+     * Columns that are no longer declared are kept. The fingerprint of a table is stored once it matches.
+     *
+     * @param tables Tables whose fingerprint changed
+     */
+    final void migrate(final List<DatabaseTable> tables) {
+        if(this.source == null) {
+            return;
+        }
+
+        try (final Connection connection = this.source.getConnection()) {
+            for(final DatabaseTable table : tables) {
+                try {
+                    if(this.migrate(connection, table)) {
+                        this.store(connection, table);
+                    }
+                } catch (final SQLException ex) {
+                    SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - Failed to migrate '%s' on '%s': %s",
+                            table.getName(),
+                            this.database.name(),
+                            ex.getMessage());
+                }
+            }
+        } catch (final SQLException ex) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - Connection could not be established to migrate '%s': %s",
+                    this.database.name(),
+                    ex.getMessage());
+        }
+    }
+
+    /**
+     * @return Whether the table now matches its definition
+     */
+    private boolean migrate(final Connection connection, final DatabaseTable table) throws SQLException {
+        final List<String> changes = this.diff(connection, table);
+        // Partitioning an existing table always rebuilds it, so it is only done by copying
+        final boolean partition = table.getPartitioning() != null && !this.isPartitioned(connection, table.getName());
+        if(changes.isEmpty() && !partition) {
+            return true;
+        }
+
+        final String alter = "ALTER TABLE `" + table.getName() + "` " + String.join(", ", changes);
+        if(this.mode == Mode.OFF) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - '%s' on '%s' differs from its definition, schema-migration is off: %s",
+                    table.getName(),
+                    this.database.name(),
+                    partition ? alter + " " + table.getPartitioning().asQuery() : alter);
+            return false;
+        }
+
+        final boolean altered = changes.isEmpty() || this.alter(connection, table, alter);
+        if(altered && !partition) {
+            return true;
+        }
+
+        if(this.mode != Mode.ONLINE) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - '%s' on '%s' needs a table copy, set schema-migration to online to run it: %s",
+                    table.getName(),
+                    this.database.name(),
+                    (altered ? "ALTER TABLE `" + table.getName() + "`" : alter) + (partition ? " " + table.getPartitioning().asQuery() : ""));
+            return false;
+        }
+
+        return this.copy(connection, table, altered ? Collections.emptyList() : changes, partition);
+    }
+
+    /**
+     * Run an ALTER with ALGORITHM=INSTANT, then ALGORITHM=INPLACE, LOCK=NONE
+     *
+     * @return Whether the server could run it without copying the table
+     */
+    private boolean alter(final Connection connection, final DatabaseTable table, final String alter) throws SQLException {
+        for(final String algorithm : new String[] {"ALGORITHM=INSTANT", "ALGORITHM=INPLACE, LOCK=NONE"}) {
+            try (final Statement statement = connection.createStatement()) {
+                final long start = System.nanoTime();
+                statement.execute(alter + ", " + algorithm);
+
+                SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - Migrated '%s' on '%s' with %s in %dms: %s",
+                        table.getName(),
+                        this.database.name(),
+                        algorithm,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        alter);
+                return true;
+            } catch (final SQLException ex) {
+                if(!SQLMigrator.isUnsupported(ex)) {
+                    throw ex;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Compare the declared columns, primary key, unique key and indexes of a table with information_schema
+     *
+     * @return ALTER TABLE clauses, empty when the table matches
+     */
+    private List<String> diff(final Connection connection, final DatabaseTable table) throws SQLException {
+        // Column names compare case insensitively in MariaDB
+        final Map<String, Column> existing = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        existing.putAll(this.columns(connection, table.getName()));
+        final Map<String, TableIndex> indexes = this.indexes(connection, table.getName());
+        final List<String> changes = new ArrayList<>();
+
+        for(final TableColumn column : table.getColumns()) {
+            final Column current = existing.get(column.getName());
+            if(current == null) {
+                changes.add("ADD COLUMN " + column.asQuery());
+            } else if(SQLMigrator.isChanged(column, current)) {
+                changes.add("MODIFY COLUMN " + column.asQuery());
+            }
+        }
+
+        existing.keySet()
+                .stream()
+                .filter(name -> table.getColumns().stream().noneMatch(column -> column.getName().equalsIgnoreCase(name)))
+                .forEach(name -> SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[SQLMigrator] - Column '%s' of '%s' is no longer declared and is kept",
+                        name,
+                        table.getName()));
+
+        final List<String> primary = table.getColumns()
+                .stream()
+                .filter(TableColumn::isPrimaryKey)
+                .map(TableColumn::getName)
+                .collect(Collectors.toList());
+        final List<String> current = SQLMigrator.columns(indexes.get("PRIMARY"));
+        if(!primary.isEmpty() && !SQLMigrator.matches(primary, current)) {
+            changes.add((current.isEmpty() ? "" : "DROP PRIMARY KEY, ") + "ADD PRIMARY KEY (`" + String.join("`, `", primary) + "`)");
+        }
+
+        if(table.getUniqueKey() != null) {
+            final List<String> unique = SQLMigrator.split(table.getUniqueKey());
+            final boolean present = indexes.values()
+                    .stream()
+                    .anyMatch(index -> index.isUnique() && !index.getName().equals("PRIMARY") && SQLMigrator.matches(unique, SQLMigrator.columns(index)));
+            if(!present) {
+                changes.add("ADD UNIQUE KEY (" + table.getUniqueKey() + ")");
+            }
+        }
+
+        // Indexes added by hand are left alone, declared indexes are matched by name
+        for(final TableIndex index : table.getIndexes()) {
+            final TableIndex server = indexes.get(index.getName());
+            if(server == null) {
+                changes.add("ADD " + index.asQuery());
+            } else if(!SQLMigrator.matches(index, server)) {
+                changes.add("DROP KEY `" + index.getName() + "`");
+                changes.add("ADD " + index.asQuery());
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Copy a table to a shadow table with the changes applied, holding a named lock on the table so only one
+     * server copies it. Tables with or referenced by foreign keys are not copied, as the RENAME would leave
+     * the keys pointing at the old table.
+     *
+     * @param changes ALTER TABLE clauses applied to the shadow table
+     * @param partition Whether the shadow table is partitioned, with partitions already covering the coming intervals
+     * @return Whether the table was replaced
+     */
+    private boolean copy(final Connection connection, final DatabaseTable table, final List<String> changes, final boolean partition) throws SQLException {
+        final String name = table.getName();
+        final List<String> key = SQLMigrator.columns(this.indexes(connection, name).get("PRIMARY"));
+        if(key.isEmpty()) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - '%s' on '%s' has no primary key and cannot be copied online", name, this.database.name());
+            return false;
+        }
+        if(this.hasForeignKeys(connection, name)) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - '%s' on '%s' has or is referenced by foreign keys and cannot be copied online",
+                    name,
+                    this.database.name());
+            return false;
+        }
+
+        if(!this.lock(connection, name)) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - '%s' on '%s' is being migrated by another server, skipped",
+                    name,
+                    this.database.name());
+            return false;
+        }
+
+        try {
+            return this.copy(connection, table, key, changes, partition);
+        } finally {
+            this.unlock(connection, name);
+        }
+    }
+
+    /**
+     * Copy a table to a shadow table in chunks of the primary key. Triggers keep the shadow table in sync with
+     * writes made during the copy. Row counts of both tables are compared chunk by chunk while the triggers
+     * still run, and only once they match are the tables swapped with one RENAME.
+     *
+     * @param key Primary key columns of the table
+     */
+    private boolean copy(final Connection connection, final DatabaseTable table, final List<String> key,
+                         final List<String> changes, final boolean partition) throws SQLException {
+        final String name = table.getName();
+        final String shadow = "_" + name + "_new";
+        final String old = "_" + name + "_old";
+        final List<String> columns = new ArrayList<>(this.columns(connection, name).keySet());
+        final String list = "`" + String.join("`, `", columns) + "`";
+        final String keys = "`" + String.join("`, `", key) + "`";
+        final String match = key.stream().map(column -> "`" + column + "` <=> OLD.`" + column + "`").collect(Collectors.joining(" AND "));
+        final String values = columns.stream().map(column -> "NEW.`" + column + "`").collect(Collectors.joining(", "));
+
+        final long start = System.nanoTime();
+        this.cleanup(connection, name);
+        try {
+            this.execute(connection, "CREATE TABLE `" + shadow + "` LIKE `" + name + "`");
+            if(!changes.isEmpty()) {
+                this.execute(connection, "ALTER TABLE `" + shadow + "` " + String.join(", ", changes));
+            }
+            if(partition) {
+                final TablePartitioning partitioning = table.getPartitioning();
+                this.execute(connection, "ALTER TABLE `" + shadow + "` " + partitioning.asQuery(PartitionMaintainer.upcoming(partitioning,
+                        ZonedDateTime.now(ZoneOffset.UTC),
+                        Long.MIN_VALUE,
+                        Collections.emptyList())));
+            }
+
+            this.execute(connection, "CREATE TRIGGER `" + shadow + "_ins` AFTER INSERT ON `" + name + "` FOR EACH ROW "
+                    + "REPLACE INTO `" + shadow + "` (" + list + ") VALUES (" + values + ")");
+            this.execute(connection, "CREATE TRIGGER `" + shadow + "_upd` AFTER UPDATE ON `" + name + "` FOR EACH ROW BEGIN "
+                    + "DELETE IGNORE FROM `" + shadow + "` WHERE " + match + "; "
+                    + "REPLACE INTO `" + shadow + "` (" + list + ") VALUES (" + values + "); END");
+            this.execute(connection, "CREATE TRIGGER `" + shadow + "_del` AFTER DELETE ON `" + name + "` FOR EACH ROW "
+                    + "DELETE IGNORE FROM `" + shadow + "` WHERE " + match);
+
+            final String placeholders = "(" + String.join(", ", Collections.nCopies(key.size(), "?")) + ")";
+            final String bound = "SELECT " + keys + " FROM `" + name + "` WHERE (" + keys + ") > " + placeholders
+                    + " ORDER BY " + keys + " LIMIT 1 OFFSET " + (this.chunkSize - 1);
+            final String insert = "INSERT IGNORE INTO `" + shadow + "` (" + list + ") SELECT " + list + " FROM `" + name + "`";
+
+            long rows = 0;
+            final List<Object[]> bounds = new ArrayList<>();
+            Object[] lower = null;
+            while(true) {
+                final Object[] upper = this.bound(connection, lower == null
+                        ? "SELECT " + keys + " FROM `" + name + "` ORDER BY " + keys + " LIMIT 1 OFFSET " + (this.chunkSize - 1)
+                        : bound, lower, key.size());
+
+                final List<Object> parameters = new ArrayList<>();
+                final String query = insert + SQLMigrator.range(keys, placeholders, lower, upper, parameters) + " LOCK IN SHARE MODE";
+                try (final PreparedStatement statement = connection.prepareStatement(query)) {
+                    for(int i = 0; i < parameters.size(); i++) {
+                        statement.setObject(i + 1, parameters.get(i));
+                    }
+                    rows += statement.executeUpdate();
+                }
+
+                if(upper == null) {
+                    break;
+                }
+                bounds.add(upper);
+                lower = upper;
+                this.pause();
+            }
+
+            if(!this.verify(connection, name, shadow, keys, placeholders, bounds)) {
+                return false;
+            }
+
+            this.execute(connection, "RENAME TABLE `" + name + "` TO `" + old + "`, `" + shadow + "` TO `" + name + "`");
+
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - Migrated '%s' on '%s' by copying %d rows in %dms: %s",
+                    name,
+                    this.database.name(),
+                    rows,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    partition ? String.join(", ", changes) + " " + table.getPartitioning().asQuery() : String.join(", ", changes));
+            return true;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.cleanup(connection, name);
+        }
+    }
+
+    /**
+     * Compare the row count of every chunk of a table with its shadow table. A chunk written to between the two
+     * counts differs for a moment, so a differing chunk is counted again after a pause before the copy is given up.
+     *
+     * @param bounds Upper primary key of every chunk but the last, as copied
+     * @return Whether every chunk holds the same number of rows in both tables
+     */
+    private boolean verify(final Connection connection, final String name, final String shadow, final String keys,
+                           final String placeholders, final List<Object[]> bounds) throws SQLException, InterruptedException {
+        Object[] lower = null;
+        for(int i = 0; i <= bounds.size(); i++) {
+            final Object[] upper = i < bounds.size() ? bounds.get(i) : null;
+            final List<Object> parameters = new ArrayList<>();
+            final String range = SQLMigrator.range(keys, placeholders, lower, upper, parameters);
+
+            for(int attempt = 1; ; attempt++) {
+                final long original = this.count(connection, "SELECT COUNT(*) FROM `" + name + "`" + range, parameters);
+                final long copied = this.count(connection, "SELECT COUNT(*) FROM `" + shadow + "`" + range, parameters);
+                if(original == copied) {
+                    break;
+                }
+
+                if(attempt >= VERIFY_ATTEMPTS) {
+                    SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLMigrator] - Copy of '%s' on '%s' holds %d rows against %d in chunk %d, the table is left unchanged",
+                            name,
+                            this.database.name(),
+                            copied,
+                            original,
+                            i + 1);
+                    return false;
+                }
+                this.pause();
+            }
+
+            lower = upper;
+        }
+
+        return true;
+    }
+
+    /**
+     * Build the WHERE clause of a chunk, keys above lower and up to upper
+     *
+     * @param parameters Filled with the bound key values
+     * @return WHERE clause, empty when the chunk is the whole table
+     */
+    private static String range(final String keys, final String placeholders, final Object[] lower, final Object[] upper, final List<Object> parameters) {
+        final StringBuilder range = new StringBuilder();
+        if(lower != null) {
+            range.append(" WHERE (").append(keys).append(") > ").append(placeholders);
+            parameters.addAll(Arrays.asList(lower));
+        }
+        if(upper != null) {
+            range.append(lower == null ? " WHERE (" : " AND (").append(keys).append(") <= ").append(placeholders);
+            parameters.addAll(Arrays.asList(upper));
+        }
+
+        return range.toString();
+    }
+
+    /**
+     * Read the primary key of the last row of the next chunk
+     *
+     * @return Key values, null when fewer than chunkSize rows are left
+     */
+    private Object[] bound(final Connection connection, final String query, final Object[] lower, final int size) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement(query)) {
+            if(lower != null) {
+                for(int i = 0; i < lower.length; i++) {
+                    statement.setObject(i + 1, lower[i]);
+                }
+            }
+
+            try (final ResultSet res = statement.executeQuery()) {
+                if(!res.next()) {
+                    return null;
+                }
+
+                final Object[] upper = new Object[size];
+                for(int i = 0; i < size; i++) {
+                    upper[i] = res.getObject(i + 1);
+                }
+                return upper;
+            }
+        }
+    }
+
+    /**
+     * Wait between chunks, and for as long as a read replica is further behind than replica-max-lag
+     */
+    private void pause() throws InterruptedException {
+        Thread.sleep(this.throttle);
+
+        final ReplicaSet replicas = SQLConnectionHandler.INSTANCE.getReplicaSets().get(this.database.name());
+        final DatabaseConnectionSettings settings = SQLConnectionHandler.INSTANCE.getConnectionSettings().get(this.database.name());
+        if(replicas == null || settings == null) {
+            return;
+        }
+
+        while(replicas.getReplicas().stream().anyMatch(replica -> replica.getLag() > settings.getReplicaMaxLag())) {
+            Thread.sleep(Math.max(100, this.throttle));
+        }
+    }
+
+    /**
+     * Drop the triggers, shadow table and old table of a copy
+     */
+    private void cleanup(final Connection connection, final String name) throws SQLException {
+        final String shadow = "_" + name + "_new";
+        for(final String trigger : new String[] {"_ins", "_upd", "_del"}) {
+            this.execute(connection, "DROP TRIGGER IF EXISTS `" + shadow + trigger + "`");
+        }
+        this.execute(connection, "DROP TABLE IF EXISTS `" + shadow + "`");
+        this.execute(connection, "DROP TABLE IF EXISTS `_" + name + "_old`");
+    }
+
+    /**
+     * Take the named lock of a table without waiting, it is held by the connection until released or closed
+     *
+     * @return Whether the lock was taken
+     */
+    private boolean lock(final Connection connection, final String table) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(CONCAT('titan_schema:', DATABASE(), '.', ?), 0)")) {
+            statement.setString(1, table);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                return res.next() && res.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void unlock(final Connection connection, final String table) {
+        try (final PreparedStatement statement = connection.prepareStatement("DO RELEASE_LOCK(CONCAT('titan_schema:', DATABASE(), '.', ?))")) {
+            statement.setString(1, table);
+            statement.execute();
+        } catch (final SQLException ex) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[SQLMigrator] - Failed to release the lock of '%s' on '%s': %s", table, this.database.name(), ex.getMessage());
+        }
+    }
+
+    /**
+     * @return Whether a table has foreign keys or is referenced by one
+     */
+    private boolean hasForeignKeys(final Connection connection, final String table) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM information_schema.REFERENTIAL_CONSTRAINTS "
+                + "WHERE CONSTRAINT_SCHEMA = DATABASE() AND (TABLE_NAME = ? OR REFERENCED_TABLE_NAME = ?)")) {
+            statement.setString(1, table);
+            statement.setString(2, table);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                return res.next() && res.getLong(1) > 0;
+            }
+        }
+    }
+
+    private long count(final Connection connection, final String query, final List<Object> parameters) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement(query)) {
+            for(int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+
+            try (final ResultSet res = statement.executeQuery()) {
+                return res.next() ? res.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void execute(final Connection connection, final String query) throws SQLException {
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute(query);
+        }
+    }
+
+    private void store(final Connection connection, final DatabaseTable table) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement(SQLSchema.STORE)) {
+            statement.setString(1, table.getName());
+            statement.setString(2, SQLSchema.fingerprint(table.definition()));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @return Whether a table is split into partitions
+     */
+    private boolean isPartitioned(final Connection connection, final String table) throws SQLException {
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL")) {
+            statement.setString(1, table);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                return res.next() && res.getLong(1) > 0;
+            }
+        }
+    }
+
+    /**
+     * @return Columns of a table in ordinal order
+     */
+    private Map<String, Column> columns(final Connection connection, final String table) throws SQLException {
+        final Map<String, Column> columns = new LinkedHashMap<>();
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, COLUMN_DEFAULT, EXTRA "
+                + "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION")) {
+            statement.setString(1, table);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                while(res.next()) {
+                    columns.put(res.getString(1), new Column(res.getString(2),
+                            "YES".equalsIgnoreCase(res.getString(3)),
+                            res.getString(4),
+                            res.getString(5) != null && res.getString(5).toLowerCase(Locale.ROOT).contains("auto_increment")));
+                }
+            }
+        }
+
+        return columns;
+    }
+
+    /**
+     * @return Indexes of a table as they exist on the server, keyed case insensitively by name, the primary key as PRIMARY
+     */
+    private Map<String, TableIndex> indexes(final Connection connection, final String table) throws SQLException {
+        final Map<String, TableIndex> indexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try (final PreparedStatement statement = connection.prepareStatement("SELECT INDEX_NAME, COLUMN_NAME, SUB_PART, COLLATION, NON_UNIQUE "
+                + "FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY INDEX_NAME, SEQ_IN_INDEX")) {
+            statement.setString(1, table);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                while(res.next()) {
+                    final TableIndex index = indexes.computeIfAbsent(res.getString(1), TableIndex::new);
+                    if(res.getInt(5) == 0 && !index.isUnique()) {
+                        index.setUnique();
+                    }
+
+                    if("D".equals(res.getString(4))) {
+                        index.descending(res.getString(2));
+                    } else {
+                        index.column(res.getString(2), res.getInt(3));
+                    }
+                }
+            }
+        }
+
+        return indexes;
+    }
+
+    /**
+     * @param index TableIndex, may be null
+     * @return Column names of the index in order, empty when null
+     */
+    private static List<String> columns(final TableIndex index) {
+        if(index == null) {
+            return Collections.emptyList();
+        }
+
+        return index.getParts()
+                .stream()
+                .map(TableIndex.Part::getColumn)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Decide whether a declared column differs from the existing one. Only differences that matter are counted:
+     * integer display widths are ignored and an existing default is kept when none is declared.
+     */
+    private static boolean isChanged(final TableColumn column, final Column current) {
+        final String declared = column.getType().type().toLowerCase(Locale.ROOT);
+        final boolean autoIncrement = declared.contains("auto_increment");
+        final boolean nullable = column.isNullable() && !column.isPrimaryKey() && !declared.contains("not null");
+
+        if(!SQLMigrator.isSameType(declared, current.type.toLowerCase(Locale.ROOT))
+                || nullable != current.nullable
+                || autoIncrement != current.autoIncrement) {
+            return true;
+        }
+
+        return column.getDefaultValue() != null && !SQLMigrator.isSameDefault(column.getDefaultValue(), current.defaultValue);
+    }
+
+    private static boolean isSameType(final String declared, final String current) {
+        final Matcher left = TYPE.matcher(SQLMigrator.alias(declared.trim()));
+        final Matcher right = TYPE.matcher(SQLMigrator.alias(current.trim()));
+        if(!left.find() || !right.find()) {
+            return declared.trim().equals(current.trim());
+        }
+
+        final String base = SQLMigrator.base(left.group(1));
+        if(!base.equals(SQLMigrator.base(right.group(1)))) {
+            return false;
+        }
+
+        // Display widths do not change integer storage and are dropped by MySQL 8
+        if(INTEGERS.contains(base) || left.group(2) == null) {
+            return true;
+        }
+
+        return left.group(2).replace(" ", "").equals(right.group(2) == null ? "" : right.group(2).replace(" ", ""));
+    }
+
+    private static String alias(final String type) {
+        if(type.startsWith("boolean") || type.startsWith("bool ") || type.equals("bool")) {
+            return "tinyint(1)";
+        }
+        if(type.equals("decimal") || type.startsWith("decimal ")) {
+            return "decimal(10,0)";
+        }
+
+        return type;
+    }
+
+    private static String base(final String type) {
+        return type.equals("integer") ? "int" : type;
+    }
+
+    private static boolean isSameDefault(final String declared, final String current) {
+        if(current == null || current.equalsIgnoreCase("NULL")) {
+            return false;
+        }
+
+        final String left = SQLMigrator.unquote(declared);
+        final String right = SQLMigrator.unquote(current);
+        if(left.equals(right)) {
+            return true;
+        }
+
+        try {
+            return new BigDecimal(left).compareTo(new BigDecimal(right)) == 0;
+        } catch (final NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private static String unquote(final String value) {
+        if(value.length() >= 2 && value.startsWith("'") && value.endsWith("'")) {
+            return value.substring(1, value.length() - 1).replace("''", "'");
+        }
+
+        return value;
+    }
+
+    /**
+     * @param key Column list of a key as written in the definition, e.g. "`a`, `b`(10)"
+     * @return Column names
+     */
+    private static List<String> split(final String key) {
+        return Arrays.stream(key.split(","))
+                .map(column -> column.replaceAll("\\(.*\\)", "").replace("`", "").trim())
+                .filter(column -> !column.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static boolean matches(final List<String> declared, final List<String> current) {
+        if(declared.size() != current.size()) {
+            return false;
+        }
+
+        for(int i = 0; i < declared.size(); i++) {
+            if(!declared.get(i).equalsIgnoreCase(current.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare a declared index with the existing one. DESC is accepted on an ascending index as servers
+     * without descending indexes parse and ignore it.
+     */
+    private static boolean matches(final TableIndex declared, final TableIndex current) {
+        if(declared.isUnique() != current.isUnique() || declared.getParts().size() != current.getParts().size()) {
+            return false;
+        }
+
+        for(int i = 0; i < declared.getParts().size(); i++) {
+            final TableIndex.Part left = declared.getParts().get(i);
+            final TableIndex.Part right = current.getParts().get(i);
+            if(!left.getColumn().equalsIgnoreCase(right.getColumn())
+                    || left.getLength() != right.getLength()
+                    || (right.isDescending() && !left.isDescending())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUnsupported(final SQLException ex) {
+        return UNSUPPORTED.contains(ex.getErrorCode()) || "0A000".equals(ex.getSQLState());
+    }
+}
@@ -0,0 +1,73 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
+import net.thenova.titan.module.sqldatabase.tables.column.TableColumn;
+
+import java.sql.Types;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class SQLNull {
+
+    public static final SQLNull INT = new SQLNull(Types.INTEGER);
+    public static final SQLNull BIGINT = new SQLNull(Types.BIGINT);
+    public static final SQLNull DOUBLE = new SQLNull(Types.DOUBLE);
+    public static final SQLNull BOOLEAN = new SQLNull(Types.BOOLEAN);
+    public static final SQLNull VARCHAR = new SQLNull(Types.VARCHAR);
+    public static final SQLNull TIMESTAMP = new SQLNull(Types.TIMESTAMP);
+
+    /* java.sql.Types of the parameter */
+    private final int type;
+
+    /**
+     * Null parameter typed as a column type, so the statement keeps the parameter types it was prepared with
+     *
+     * @param type SQLDataType of the target column
+     * @return SQLNull
+     */
+    public static SQLNull of(final SQLDataType type) {
+        return new SQLNull(type.sqlType());
+    }
+
+    /**
+     * Null parameter typed as the type of a column
+     *
+     * @param column TableColumn the parameter is bound to
+     * @return SQLNull
+     */
+    public static SQLNull of(final TableColumn column) {
+        return SQLNull.of(column.getType());
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof SQLNull && ((SQLNull) o).type == this.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.type;
+    }
+
+    @Override
+    public String toString() {
+        return "null";
+    }
+}
@@ -0,0 +1,348 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class SQLParameters {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private static final byte OBJECT = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte NULL = 5;
+
+    /* Parameters passed as Object..., bound as given */
+    private final Object[] wrapped;
+
+    /* Parameters bound through the typed methods, primitives are kept unboxed in values */
+    private byte[] kinds;
+    private long[] values;
+    private Object[] objects;
+    private int size;
+
+    private SQLParameters(final Object[] wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    /**
+     * Build an empty set of parameters to be filled by the typed bind methods
+     *
+     * @param capacity Expected number of parameters
+     */
+    public SQLParameters(final int capacity) {
+        this.wrapped = null;
+        this.kinds = new byte[Math.max(1, capacity)];
+        this.values = new long[this.kinds.length];
+        this.objects = new Object[this.kinds.length];
+    }
+
+    public SQLParameters() {
+        this(8);
+    }
+
+    /**
+     * Wrap parameters without copying them, each is bound by its Java type
+     *
+     * @param parameters Object
+     * @return SQLParameters
+     */
+    static SQLParameters of(final Object[] parameters) {
+        return new SQLParameters(parameters == null ? EMPTY : parameters);
+    }
+
+    public final SQLParameters bindInt(final int value) {
+        this.next(INT).values[this.size++] = value;
+
+        return this;
+    }
+
+    public final SQLParameters bindLong(final long value) {
+        this.next(LONG).values[this.size++] = value;
+
+        return this;
+    }
+
+    public final SQLParameters bindDouble(final double value) {
+        this.next(DOUBLE).values[this.size++] = Double.doubleToRawLongBits(value);
+
+        return this;
+    }
+
+    public final SQLParameters bindBoolean(final boolean value) {
+        this.next(BOOLEAN).values[this.size++] = value ? 1 : 0;
+
+        return this;
+    }
+
+    public final SQLParameters bindString(final String value) {
+        return value == null ? this.bindNull(Types.VARCHAR) : this.bindObject(value);
+    }
+
+    /**
+     * Bind a UUID as its 36 character form, matching VarChar.LENGTH_UUID columns
+     *
+     * @param value UUID
+     * @return SQLParameters
+     */
+    public final SQLParameters bindUuid(final UUID value) {
+        return value == null ? this.bindNull(Types.VARCHAR) : this.bindObject(value);
+    }
+
+    public final SQLParameters bindTimestamp(final Timestamp value) {
+        return value == null ? this.bindNull(Types.TIMESTAMP) : this.bindObject(value);
+    }
+
+    /**
+     * Bind a null typed as java.sql.Types, see {@link SQLNull}
+     *
+     * @param type java.sql.Types
+     * @return SQLParameters
+     */
+    public final SQLParameters bindNull(final int type) {
+        this.next(NULL).values[this.size++] = type;
+
+        return this;
+    }
+
+    /**
+     * Bind a null typed as a column type, see {@link SQLNull}
+     *
+     * @param type SQLDataType of the target column
+     * @return SQLParameters
+     */
+    public final SQLParameters bindNull(final SQLDataType type) {
+        return this.bindNull(type.sqlType());
+    }
+
+    /**
+     * Bind a value for a column, nulls are typed as the column
+     *
+     * @param type SQLDataType of the target column
+     * @param value Object
+     * @return SQLParameters
+     */
+    public final SQLParameters bind(final SQLDataType type, final Object value) {
+        return value == null ? this.bindNull(type) : this.bind(value);
+    }
+
+    /**
+     * Bind a value by its Java type, see {@link #set(PreparedStatement, int, Object)}
+     *
+     * @param value Object
+     * @return SQLParameters
+     */
+    public final SQLParameters bind(final Object value) {
+        if(value instanceof Integer) {
+            return this.bindInt((Integer) value);
+        }
+        if(value instanceof Long) {
+            return this.bindLong((Long) value);
+        }
+        if(value instanceof SQLNull) {
+            return this.bindNull(((SQLNull) value).getType());
+        }
+
+        return this.bindObject(value);
+    }
+
+    private SQLParameters bindObject(final Object value) {
+        this.next(OBJECT).objects[this.size++] = value;
+
+        return this;
+    }
+
+    /**
+     * Make room for the next parameter and record its kind
+     *
+     * @param kind Kind of the parameter
+     * @return SQLParameters
+     */
+    private SQLParameters next(final byte kind) {
+        if(this.wrapped != null) {
+            throw new IllegalStateException("Parameters passed as Object... cannot be bound to");
+        }
+
+        if(this.size == this.kinds.length) {
+            final int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+            this.objects = Arrays.copyOf(this.objects, capacity);
+        }
+        this.kinds[this.size] = kind;
+
+        return this;
+    }
+
+    /**
+     * Drop every parameter so the object can be filled again, only once the executor it was handed to has completed
+     *
+     * @return SQLParameters
+     */
+    public final SQLParameters clear() {
+        if(this.wrapped == null) {
+            Arrays.fill(this.objects, 0, this.size, null);
+            this.size = 0;
+        }
+
+        return this;
+    }
+
+    /**
+     * @return Number of parameters
+     */
+    public final int size() {
+        return this.wrapped != null ? this.wrapped.length : this.size;
+    }
+
+    /**
+     * Bind every parameter to a statement, primitives are set without boxing
+     *
+     * @param statement PreparedStatement
+     * @throws SQLException Thrown on failure setting a parameter
+     */
+    final void apply(final PreparedStatement statement) throws SQLException {
+        if(this.wrapped != null) {
+            SQLParameters.apply(statement, this.wrapped);
+            return;
+        }
+
+        for(int i = 0; i < this.size; i++) {
+            switch (this.kinds[i]) {
+                case INT:
+                    statement.setInt(i + 1, (int) this.values[i]);
+                    break;
+                case LONG:
+                    statement.setLong(i + 1, this.values[i]);
+                    break;
+                case DOUBLE:
+                    statement.setDouble(i + 1, Double.longBitsToDouble(this.values[i]));
+                    break;
+                case BOOLEAN:
+                    statement.setBoolean(i + 1, this.values[i] != 0);
+                    break;
+                case NULL:
+                    statement.setNull(i + 1, (int) this.values[i]);
+                    break;
+                default:
+                    SQLParameters.set(statement, i + 1, this.objects[i]);
+            }
+        }
+    }
+
+    /**
+     * @return Parameters as objects, typed nulls as {@link SQLNull}. Boxes primitives, so only for logging,
+     * cache keys and pipelining.
+     */
+    final Object[] toArray() {
+        if(this.wrapped != null) {
+            return this.wrapped;
+        }
+
+        final Object[] array = new Object[this.size];
+        for(int i = 0; i < this.size; i++) {
+            switch (this.kinds[i]) {
+                case INT:
+                    array[i] = (int) this.values[i];
+                    break;
+                case LONG:
+                    array[i] = this.values[i];
+                    break;
+                case DOUBLE:
+                    array[i] = Double.longBitsToDouble(this.values[i]);
+                    break;
+                case BOOLEAN:
+                    array[i] = this.values[i] != 0;
+                    break;
+                case NULL:
+                    array[i] = new SQLNull((int) this.values[i]);
+                    break;
+                default:
+                    array[i] = this.objects[i];
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * Bind parameters to a statement by their Java type
+     *
+     * @param statement PreparedStatement
+     * @param parameters Object
+     * @throws SQLException Thrown on failure setting a parameter
+     */
+    static void apply(final PreparedStatement statement, final Object[] parameters) throws SQLException {
+        for(int i = 0; i < parameters.length; i++) {
+            SQLParameters.set(statement, i + 1, parameters[i]);
+        }
+    }
+
+    /**
+     * Bind a parameter with the setter for its Java type rather than setObject, so the driver does not inspect
+     * the type. UUIDs are bound as their 36 character form and {@link SQLNull} as a null of its type, untyped
+     * nulls are sent as Types.NULL.
+     *
+     * @param statement PreparedStatement
+     * @param index Index of the parameter, from 1
+     * @param value Object
+     * @throws SQLException Thrown on failure setting the parameter
+     */
+    static void set(final PreparedStatement statement, final int index, final Object value) throws SQLException {
+        if(value == null) {
+            statement.setNull(index, Types.NULL);
+        } else if(value instanceof String) {
+            statement.setString(index, (String) value);
+        } else if(value instanceof Integer) {
+            statement.setInt(index, (Integer) value);
+        } else if(value instanceof Long) {
+            statement.setLong(index, (Long) value);
+        } else if(value instanceof UUID) {
+            statement.setString(index, value.toString());
+        } else if(value instanceof SQLNull) {
+            statement.setNull(index, ((SQLNull) value).getType());
+        } else if(value instanceof Boolean) {
+            statement.setBoolean(index, (Boolean) value);
+        } else if(value instanceof Double) {
+            statement.setDouble(index, (Double) value);
+        } else if(value instanceof Timestamp) {
+            statement.setTimestamp(index, (Timestamp) value);
+        } else if(value instanceof BigDecimal) {
+            statement.setBigDecimal(index, (BigDecimal) value);
+        } else if(value instanceof Float) {
+            statement.setFloat(index, (Float) value);
+        } else if(value instanceof Short) {
+            statement.setShort(index, (Short) value);
+        } else if(value instanceof Byte) {
+            statement.setByte(index, (Byte) value);
+        } else if(value instanceof byte[]) {
+            statement.setBytes(index, (byte[]) value);
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zaxxer.hikari.HikariDataSource;
+import de.arraying.lumberjack.LLogger;
+import lombok.Getter;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class SQLPlanSampler {
+
+    public enum Flag {
+        /* A table is read in full */
+        FULL_SCAN,
+        /* Rows are sorted outside of an index */
+        FILESORT,
+        /* A temporary table is built */
+        TEMPORARY,
+        /* Many rows are read while the optimizer expects few of them to match */
+        POOR_FILTER
+    }
+
+    @Getter
+    public static final class Plan {
+        private final String database;
+        private final String fingerprint;
+
+        private volatile String query;
+        private volatile String explain;
+        private volatile Set<Flag> flags = Collections.emptySet();
+        private volatile long samples;
+        private volatile long slowest;
+        private volatile long sampled;
+
+        private Plan(final String database, final String fingerprint) {
+            this.database = database;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /* Explains waiting to run before new ones are dropped */
+    private static final int QUEUE_CAPACITY = 100;
+    /* Distinct queries tracked, further queries are not explained */
+    private static final int MAX_PLANS = 1000;
+    /* Time before a query is explained again */
+    private static final long REFRESH = TimeUnit.MINUTES.toNanos(5);
+    /* Rows read by a table access before a low filtered estimate is flagged */
+    private static final long POOR_FILTER_ROWS = 1000;
+    private static final double POOR_FILTER_PERCENT = 10;
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(?:SELECT|UPDATE|DELETE|INSERT|REPLACE|WITH)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FULL_SCAN = Pattern.compile("\"access_type\"\\s*:\\s*\"ALL\"");
+    private static final Pattern FILESORT = Pattern.compile("\"using_filesort\"\\s*:\\s*true|\"filesort\"\\s*:");
+    private static final Pattern TEMPORARY = Pattern.compile("\"using_temporary_table\"\\s*:\\s*true|\"temporary_table\"\\s*:");
+    private static final Pattern ACCESS = Pattern.compile("\"(?:rows|rows_examined_per_scan)\"\\s*:\\s*(\\d+)\\s*,\\s*(?:\"[a-z_]+\"\\s*:\\s*[^,{]+,\\s*)*?\"filtered\"\\s*:\\s*\"?([\\d.]+)");
+
+    private final LLogger logger;
+    private final SQLStatementLogger.Mode mode;
+    private final long threshold;
+    private final int sampleRate;
+    private final ExecutorService explainer;
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+    SQLPlanSampler(final LLogger logger, final SQLStatementLogger.Mode mode, final long threshold, final int sampleRate) {
+        this.logger = logger;
+        this.mode = mode;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.explainer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("titan-sqldatabase-explain").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Explain a completed statement on a separate connection when it is slow or sampled, at most once
+     * every few minutes for each normalized query
+     *
+     * @param database Database the statement ran on
+     * @param source Pool of the database, the explain borrows its own connection
+     * @param nanos Duration of the statement
+     * @param query SQL
+     * @param parameters Bound parameters
+     */
+    final void sample(final Database database, final HikariDataSource source, final long nanos, final String query, final SQLParameters parameters) {
+        if(source == null || !this.isSampled(nanos) || !EXPLAINABLE.matcher(query).find()) {
+            return;
+        }
+
+        final String fingerprint = SQLConnectionHandler.INSTANCE.getMetrics().fingerprint(query);
+        final String key = database.name() + ":" + fingerprint;
+        Plan plan = this.plans.get(key);
+        if(plan == null) {
+            if(this.plans.size() >= MAX_PLANS) {
+                return;
+            }
+            plan = this.plans.computeIfAbsent(key, ignored -> new Plan(database.name(), fingerprint));
+        }
+
+        final Plan target = plan;
+        synchronized (target) {
+            target.samples++;
+            target.slowest = Math.max(target.slowest, nanos);
+
+            final long now = System.nanoTime();
+            if(target.explain != null && now - target.sampled < REFRESH) {
+                return;
+            }
+            target.sampled = now;
+        }
+
+        final Object[] bound = parameters.toArray();
+        this.explainer.execute(() -> this.explain(source, target, query, bound));
+    }
+
+    private boolean isSampled(final long nanos) {
+        switch (this.mode) {
+            case ALL:
+                return true;
+            case SLOW:
+                return nanos >= this.threshold;
+            case SAMPLED:
+                return ThreadLocalRandom.current().nextInt(this.sampleRate) == 0;
+            default:
+                return false;
+        }
+    }
+
+    private void explain(final HikariDataSource source, final Plan plan, final String query, final Object[] parameters) {
+        try (final Connection connection = source.getConnection();
+             final PreparedStatement statement = connection.prepareStatement("EXPLAIN FORMAT=JSON " + query)) {
+            SQLParameters.apply(statement, parameters);
+
+            try (final ResultSet res = statement.executeQuery()) {
+                if(res.next()) {
+                    final String explain = res.getString(1);
+                    final Set<Flag> flags = SQLPlanSampler.flags(explain);
+
+                    plan.query = query;
+                    plan.explain = explain;
+                    plan.flags = Collections.unmodifiableSet(flags);
+                    if(!flags.isEmpty()) {
+                        this.logger.info("[SQLPlanSampler] - %s on '%s', slowest %dms: %s",
+                                flags,
+                                plan.database,
+                                TimeUnit.NANOSECONDS.toMillis(plan.slowest),
+                                plan.fingerprint);
+                    }
+                }
+            }
+        } catch (final SQLException ex) {
+            this.logger.info("[SQLPlanSampler] - Failed to explain '%s': %s", plan.fingerprint, ex.getMessage());
+        }
+    }
+
+    /**
+     * Read the flags of an EXPLAIN FORMAT=JSON result, covering both the MySQL and MariaDB layouts
+     *
+     * @param explain JSON plan
+     * @return Flags raised by the plan
+     */
+    static Set<Flag> flags(final String explain) {
+        final Set<Flag> flags = EnumSet.noneOf(Flag.class);
+        if(FULL_SCAN.matcher(explain).find()) {
+            flags.add(Flag.FULL_SCAN);
+        }
+        if(FILESORT.matcher(explain).find()) {
+            flags.add(Flag.FILESORT);
+        }
+        if(TEMPORARY.matcher(explain).find()) {
+            flags.add(Flag.TEMPORARY);
+        }
+
+        final Matcher access = ACCESS.matcher(explain);
+        while(access.find()) {
+            if(Long.parseLong(access.group(1)) >= POOR_FILTER_ROWS && Double.parseDouble(access.group(2)) <= POOR_FILTER_PERCENT) {
+                flags.add(Flag.POOR_FILTER);
+                break;
+            }
+        }
+
+        return flags;
+    }
+
+    /**
+     * @return Explained queries with at least one flag, slowest first
+     */
+    public final List<Plan> getReport() {
+        return this.plans.values()
+                .stream()
+                .filter(plan -> !plan.flags.isEmpty())
+                .sorted(Comparator.comparingLong(Plan::getSlowest).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Every explained query
+     */
+    public final List<Plan> getPlans() {
+        return new ArrayList<>(this.plans.values());
+    }
+
+    /**
+     * Write the report to the sqldatabase log
+     */
+    public final void log() {
+        final List<Plan> report = this.getReport();
+        this.logger.info("[SQLPlanSampler] - %d of %d explained queries flagged", report.size(), this.plans.size());
+        report.forEach(plan -> this.logger.info("[SQLPlanSampler] - %s on '%s', %d samples, slowest %dms: %s",
+                plan.flags,
+                plan.database,
+                plan.samples,
+                TimeUnit.NANOSECONDS.toMillis(plan.slowest),
+                plan.fingerprint));
+    }
+
+    /**
+     * Drop every plan
+     */
+    public final void reset() {
+        this.plans.clear();
+    }
+
+    /**
+     * Stop explaining, queued explains are dropped
+     */
+    final void shutdown() {
+        this.explainer.shutdownNow();
+    }
+}
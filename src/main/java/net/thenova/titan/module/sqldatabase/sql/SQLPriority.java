@@ -0,0 +1,42 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SQLPriority {
+
+    /**
+     * Work a player is waiting on, such as loading data on login
+     */
+    INTERACTIVE(16),
+
+    /**
+     * Default for every SQLExecutor
+     */
+    NORMAL(4),
+
+    /**
+     * Backfills, cleanups and other large jobs nobody is waiting on
+     */
+    BULK(1);
+
+    /* Executors taken from this class for each round when every class has work queued */
+    private final int weight;
+}
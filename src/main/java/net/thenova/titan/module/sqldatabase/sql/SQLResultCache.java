@@ -0,0 +1,301 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class SQLResultCache {
+
+    private static final Pattern TABLE = Pattern.compile("\\b(?:FROM|JOIN|UPDATE|INTO|TABLE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_END = Pattern.compile("\\b(?:WHERE|GROUP|ORDER|LIMIT|HAVING|JOIN|LEFT|RIGHT|INNER|OUTER|CROSS|STRAIGHT_JOIN|NATURAL|ON|USING|SET|VALUES|VALUE|SELECT|UNION|FOR|LOCK|WINDOW|PARTITION)\\b|[();=]", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_EXISTS = Pattern.compile("^\\s*IF\\s+(?:NOT\\s+)?EXISTS\\s+", Pattern.CASE_INSENSITIVE);
+
+    private static final class Key {
+        private final String database;
+        private final String query;
+        private final List<Object> parameters;
+
+        private Key(final String database, final String query, final Object[] parameters) {
+            this.database = database;
+            this.query = query;
+            this.parameters = Arrays.asList(parameters);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key key = (Key) o;
+            return this.database.equals(key.database) && this.query.equals(key.query) && this.parameters.equals(key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.database, this.query, this.parameters);
+        }
+    }
+
+    private static final class Entry {
+        private final CachedRowSet rows;
+        private final long[] generations;
+
+        private Entry(final CachedRowSet rows, final long[] generations) {
+            this.rows = rows;
+            this.generations = generations;
+        }
+    }
+
+    /**
+     * Lookup of a single query, table generations are captured before the query runs so
+     * a write completing while it runs leaves the stored entry stale.
+     */
+    final class Lookup {
+        private final Key key;
+        private final long[] generations;
+        private final ResultSet hit;
+
+        private Lookup(final Key key, final long[] generations, final ResultSet hit) {
+            this.key = key;
+            this.generations = generations;
+            this.hit = hit;
+        }
+
+        /**
+         * @return Cached rows, null on a miss
+         */
+        final ResultSet hit() {
+            return this.hit;
+        }
+
+        /**
+         * Store the result of a miss
+         *
+         * @param result ResultSet of the executed query
+         * @return ResultSet to be handed to the consumer in place of result
+         * @throws SQLException Thrown on failure reading the result
+         */
+        final ResultSet store(final ResultSet result) throws SQLException {
+            final CachedRowSet rows = SQLResultCache.this.factory.createCachedRowSet();
+            rows.populate(result);
+            SQLResultCache.this.cache.put(this.key, new Entry(rows, this.generations));
+
+            return SQLResultCache.shared(rows);
+        }
+    }
+
+    private final boolean enabled;
+    private final Cache<Key, Entry> cache;
+    private final Cache<String, String[]> tables;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final RowSetFactory factory;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    SQLResultCache(final boolean enabled, final long size, final long ttl) {
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .<Key, Entry>removalListener(notification -> {
+                    if(notification.wasEvicted()) {
+                        this.evictions.increment();
+                    }
+                })
+                .build();
+        this.tables = CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .build();
+
+        RowSetFactory factory = null;
+        if(enabled) {
+            try {
+                factory = RowSetProvider.newFactory();
+            } catch (final SQLException ex) {
+                SQLConnectionHandler.INSTANCE.getModuleLogger().info("[SQLResultCache] - Failed to create RowSetFactory, result cache is disabled: %s", ex.getMessage());
+            }
+        }
+        this.factory = factory;
+    }
+
+    /**
+     * @return - Whether results are being cached
+     */
+    public final boolean isEnabled() {
+        return this.enabled && this.factory != null;
+    }
+
+    public final long getHits() {
+        return this.hits.sum();
+    }
+
+    public final long getMisses() {
+        return this.misses.sum();
+    }
+
+    public final long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    public final long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    public final long getSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * Drop every cached result
+     */
+    public final void clear() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Look up a SELECT
+     *
+     * @param database Database name
+     * @param query SQL
+     * @param parameters Bound parameters
+     * @return Lookup, null when the tables read by the query could not be determined
+     * @throws SQLException Thrown on failure copying the cached rows
+     */
+    final Lookup lookup(final String database, final String query, final Object[] parameters) throws SQLException {
+        final String[] tables = this.tables(query);
+        if(tables.length == 0) {
+            return null;
+        }
+
+        final long[] generations = new long[tables.length];
+        for(int i = 0; i < tables.length; i++) {
+            generations[i] = this.generation(database, tables[i]).get();
+        }
+
+        final Key key = new Key(database, query, parameters);
+        final Entry entry = this.cache.getIfPresent(key);
+        if(entry != null) {
+            if(Arrays.equals(entry.generations, generations)) {
+                this.hits.increment();
+                return new Lookup(key, generations, SQLResultCache.shared(entry.rows));
+            }
+
+            this.cache.invalidate(key);
+            this.invalidations.increment();
+        }
+
+        this.misses.increment();
+        return new Lookup(key, generations, null);
+    }
+
+    /**
+     * Invalidate every cached result reading a table written to by a query
+     *
+     * @param database Database name
+     * @param query SQL of the write
+     */
+    final void invalidate(final String database, final String query) {
+        if(!this.isEnabled()) {
+            return;
+        }
+
+        for(final String table : this.tables(query)) {
+            this.generation(database, table).incrementAndGet();
+        }
+    }
+
+    private AtomicLong generation(final String database, final String table) {
+        return this.generations.computeIfAbsent(database + "." + table, key -> new AtomicLong());
+    }
+
+    /**
+     * Return the tables a query references, parsed once per query
+     *
+     * @param query SQL
+     * @return Lower case table names
+     */
+    private String[] tables(final String query) {
+        String[] tables = this.tables.getIfPresent(query);
+        if(tables == null) {
+            tables = SQLResultCache.parse(query);
+            this.tables.put(query, tables);
+        }
+
+        return tables;
+    }
+
+    private static String[] parse(final String query) {
+        final Set<String> tables = new LinkedHashSet<>();
+
+        final Matcher matcher = TABLE.matcher(query);
+        while(matcher.find()) {
+            String clause = query.substring(matcher.end());
+
+            final Matcher end = TABLE_END.matcher(clause);
+            if(end.find()) {
+                clause = clause.substring(0, end.start());
+            }
+            clause = TABLE_EXISTS.matcher(clause).replaceFirst("");
+
+            for(final String part : clause.split(",")) {
+                final String[] tokens = part.trim().split("\\s+");
+                String table = tokens[0].replace("`", "");
+                if(table.contains(".")) {
+                    table = table.substring(table.lastIndexOf('.') + 1);
+                }
+
+                if(!table.isEmpty()) {
+                    tables.add(table.toLowerCase());
+                }
+            }
+        }
+
+        return tables.toArray(new String[0]);
+    }
+
+    private static ResultSet shared(final CachedRowSet rows) throws SQLException {
+        final ResultSet shared = rows.createShared();
+        shared.beforeFirst();
+
+        return shared;
+    }
+}
@@ -0,0 +1,155 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.thenova.titan.module.sqldatabase.settings.ConnectionHandlerSettings;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class SQLSchema {
+
+    /* Fingerprint of the definition each table was last created from */
+    static final String TABLE = "titan_schema";
+
+    private static final String CREATE = "CREATE TABLE IF NOT EXISTS `" + TABLE + "` ("
+            + "`table_name` VARCHAR(64) NOT NULL,"
+            + "`fingerprint` CHAR(64) NOT NULL,"
+            + "`updated` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+            + "PRIMARY KEY (`table_name`)) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+    static final String STORE = "INSERT INTO `" + TABLE + "` (`table_name`, `fingerprint`) VALUES (?, ?) "
+            + "ON DUPLICATE KEY UPDATE `fingerprint` = VALUES(`fingerprint`)";
+
+    private SQLSchema() {
+    }
+
+    /**
+     * Create the tables of a database that are missing, then migrate existing tables whose definition changed
+     * according to schema-migration in database.json. Migrations run one at a time on the migration thread.
+     *
+     * @param database Database the tables are created on
+     * @param tables Tables of the database
+     * @return Completed once tables are created, without waiting for migrations
+     */
+    static ListenableFuture<Void> create(final Database database, final List<DatabaseTable> tables) {
+        final List<DatabaseTable> changed = new ArrayList<>();
+        final ConnectionHandlerSettings settings = SQLConnectionHandler.INSTANCE.getSettings();
+
+        return Futures.transform(SQLSchema.create(database, tables, changed).transaction(), ignored -> {
+            if(!changed.isEmpty()) {
+                final SQLMigrator migrator = new SQLMigrator(database,
+                        SQLConnectionHandler.INSTANCE.getSource(database),
+                        SQLMigrator.Mode.parse(settings.getSchemaMigration()),
+                        settings.getSchemaMigrationChunkSize(),
+                        settings.getSchemaMigrationThrottle());
+                try {
+                    SQLConnectionHandler.INSTANCE.getMigrator().execute(() -> migrator.migrate(changed));
+                } catch (final RejectedExecutionException ex) {
+                    SQLConnectionHandler.INSTANCE.getModuleLogger().debug("[SQLSchema] - Skipped migrating '%s', the handler is shutting down", database.name());
+                }
+            }
+
+            return null;
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Build an executor creating the tables of a database that are missing. Existing tables are found with one
+     * information_schema query and their stored fingerprints with one more, so a start where nothing changed
+     * sends no DDL apart from the metadata table on its first run.
+     *
+     * @param database Database the tables are created on
+     * @param tables Tables of the database
+     * @param changed Filled with existing tables whose fingerprint is missing or differs
+     * @return SQLExecutor
+     */
+    private static SQLExecutor create(final Database database, final List<DatabaseTable> tables, final List<DatabaseTable> changed) {
+        final Set<String> existing = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<String, String> stored = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        final List<Object> names = tables.stream().map(DatabaseTable::getName).collect(Collectors.toList());
+        names.add(TABLE);
+
+        return new SQLExecutor(database)
+                .querySelect("SELECT TABLE_NAME FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ("
+                        + String.join(", ", Collections.nCopies(names.size(), "?")) + ")", names.toArray())
+                .uncached()
+                .result(res -> {
+                    while(res.next()) {
+                        existing.add(res.getString(1));
+                    }
+                })
+                .then(executor -> {
+                    if(!existing.contains(TABLE)) {
+                        executor.queryUpdate(CREATE);
+                        return;
+                    }
+
+                    executor.querySelect("SELECT `table_name`, `fingerprint` FROM `" + TABLE + "`")
+                            .uncached()
+                            .result(res -> {
+                                while(res.next()) {
+                                    stored.put(res.getString(1), res.getString(2));
+                                }
+                            });
+                })
+                .then(executor -> {
+                    final List<Object[]> rows = new ArrayList<>();
+                    for(final DatabaseTable table : tables) {
+                        final String definition = table.definition();
+                        final String fingerprint = SQLSchema.fingerprint(definition);
+                        final String previous = stored.get(table.getName());
+
+                        if(existing.contains(table.getName())) {
+                            if(!fingerprint.equals(previous)) {
+                                changed.add(table);
+                            }
+                            continue;
+                        }
+
+                        executor.queryUpdate(definition);
+                        rows.add(new Object[] {table.getName(), fingerprint});
+                    }
+
+                    if(!rows.isEmpty()) {
+                        executor.queryBatch(STORE);
+                        rows.forEach(executor::bind);
+                    }
+                });
+    }
+
+    /**
+     * @param definition CREATE TABLE statement of a table
+     * @return SHA-256 of the statement as hex
+     */
+    static String fingerprint(final String definition) {
+        return Hashing.sha256().hashString(definition, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,150 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.arraying.lumberjack.LLogger;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class SQLStatementLogger {
+
+    public enum Mode {
+        /* Nothing is logged */
+        OFF,
+        /* Statements and commits slower than log-slow-threshold */
+        SLOW,
+        /* 1 in log-sample-rate statements and commits */
+        SAMPLED,
+        /* Every statement and commit */
+        ALL;
+
+        public static Mode parse(final String name) {
+            for(final Mode mode : Mode.values()) {
+                if(mode.name().equalsIgnoreCase(name)) {
+                    return mode;
+                }
+            }
+
+            return SLOW;
+        }
+    }
+
+    /* Messages waiting to be written before new ones are dropped */
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private final LLogger logger;
+    private final Mode mode;
+    private final long threshold;
+    private final int sampleRate;
+    private final ExecutorService writer;
+
+    SQLStatementLogger(final LLogger logger, final Mode mode, final long threshold, final int sampleRate) {
+        this.logger = logger;
+        this.mode = mode;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("titan-sqldatabase-log").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Decide whether a completed statement or commit is written
+     *
+     * @param nanos Duration of the statement
+     * @return Boolean
+     */
+    public final boolean isLogged(final long nanos) {
+        switch (this.mode) {
+            case ALL:
+                return true;
+            case SLOW:
+                return nanos >= this.threshold;
+            case SAMPLED:
+                return ThreadLocalRandom.current().nextInt(this.sampleRate) == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Log a statement, formatting happens on the log thread and only when the statement is logged
+     *
+     * @param nanos Duration of the statement
+     * @param query SQL
+     * @param parameters Bound parameters
+     * @param rows Rows sent for batches, -1 otherwise
+     */
+    final void statement(final long nanos, final String query, final SQLParameters parameters, final int rows) {
+        if(!this.isLogged(nanos)) {
+            return;
+        }
+
+        // Read before handing off, the parameters may be filled again once the executor completes
+        final Object[] bound = parameters.toArray();
+        this.writer.execute(() -> this.logger.info("[SQLExecutor] [handle] - Completion time %d, Parameters [%s], Statement: '%s'",
+                TimeUnit.NANOSECONDS.toMillis(nanos),
+                rows >= 0 ? rows + " rows" : SQLStatementLogger.parameters(bound),
+                query));
+    }
+
+    /**
+     * Log completion of a commit or transaction
+     *
+     * @param stage handleCommit or handleTransaction
+     * @param label Commit or Transaction
+     * @param internal Milliseconds since submission
+     * @param full Milliseconds since the executor started running it
+     */
+    final void completion(final String stage, final String label, final long internal, final long full) {
+        if(!this.isLogged(TimeUnit.MILLISECONDS.toNanos(internal))) {
+            return;
+        }
+
+        this.writer.execute(() -> this.logger.info("[SQLExecutor] [%s] - %s completion, internal: %d, full: %d",
+                stage,
+                label,
+                internal,
+                full));
+    }
+
+    /**
+     * Stop the log thread once queued messages are written
+     */
+    final void shutdown() {
+        this.writer.shutdown();
+    }
+
+    /**
+     * Render bound parameters for a log or exception message
+     *
+     * @param parameters Object[]
+     * @return String
+     */
+    static String parameters(final Object[] parameters) {
+        return Arrays.stream(parameters)
+                .map(String::valueOf)
+                .collect(Collectors.joining(", "));
+    }
+}
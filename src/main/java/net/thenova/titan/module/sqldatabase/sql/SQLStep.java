@@ -0,0 +1,30 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface SQLStep {
+
+    /**
+     * Run between the operations of an executor, on its connection and thread. Operations queued
+     * on the executor here run straight after the step, before anything queued after it.
+     *
+     * @param executor SQLExecutor running the step
+     * @throws SQLException SQLException for handling failure within the step, rolls back a transaction, as do runtime exceptions
+     */
+    void accept(final SQLExecutor executor) throws SQLException;
+}
@@ -0,0 +1,30 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface SQLStreamConsumer<T> {
+
+    /**
+     * Handle a single streamed row, rows are only read from the server as they are accepted
+     *
+     * @param row Current row
+     * @return Whether to keep streaming, false stops the query and releases its resources
+     * @throws SQLException SQLException for handling failure within the accept
+     */
+    boolean accept(final T row) throws SQLException;
+}
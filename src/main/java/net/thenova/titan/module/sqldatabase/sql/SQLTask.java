@@ -0,0 +1,68 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.Getter;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+final class SQLTask<T> implements Runnable {
+
+    private final SQLPriority priority;
+    private final String owner;
+    private final Callable<T> task;
+    private final SettableFuture<T> future = SettableFuture.create();
+    private final FairQueue queue;
+
+    /* System.nanoTime() the task was queued, used for queue delay */
+    private long queued = System.nanoTime();
+
+    SQLTask(final SQLPriority priority, final String owner, final Callable<T> task, final FairQueue queue) {
+        this.priority = priority;
+        this.owner = owner == null ? "" : owner;
+        this.task = task;
+        this.queue = queue;
+    }
+
+    @Override
+    public final void run() {
+        this.queue.started(this);
+        try {
+            if(!this.future.isDone()) {
+                this.future.set(this.task.call());
+            }
+        } catch (final Throwable ex) {
+            this.future.setException(ex);
+        } finally {
+            this.queue.finished(this);
+        }
+    }
+
+    /**
+     * Fail the task without running it
+     *
+     * @param cause Exception the future fails with
+     */
+    final void reject(final Throwable cause) {
+        this.future.setException(cause);
+    }
+
+    final void queued() {
+        this.queued = System.nanoTime();
+    }
+}
@@ -0,0 +1,335 @@
+package net.thenova.titan.module.sqldatabase.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.Getter;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+import net.thenova.titan.module.sqldatabase.tables.DatabaseTable;
+import net.thenova.titan.module.sqldatabase.tables.column.TableColumn;
+import net.thenova.titan.module.sqldatabase.tables.shard.ShardedDatabase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class WriteBehindBuffer {
+
+    private static final class PendingKey {
+        private final String table;
+        private final List<Object> primary;
+
+        private PendingKey(final String table, final List<Object> primary) {
+            this.table = table;
+            this.primary = primary;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof PendingKey)) {
+                return false;
+            }
+
+            final PendingKey key = (PendingKey) o;
+            return this.table.equals(key.table) && this.primary.equals(key.primary);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.table, this.primary);
+        }
+    }
+
+    private static final class PendingWrite {
+        private final PendingKey key;
+        private final DatabaseTable table;
+        private final Map<String, Object> values = new LinkedHashMap<>();
+
+        /* Failed flushes of these values */
+        private int attempts = 0;
+
+        private PendingWrite(final PendingKey key, final DatabaseTable table) {
+            this.key = key;
+            this.table = table;
+        }
+    }
+
+    /* Failed flushes of a row before it is dropped */
+    static final int MAX_ATTEMPTS = 5;
+
+    @Getter private final Database database;
+    private final int maxPending;
+
+    private Map<PendingKey, PendingWrite> pending = new HashMap<>();
+    private ListenableFuture<Void> flushing = Futures.immediateVoidFuture();
+    private ScheduledFuture<?> task;
+
+    WriteBehindBuffer(final Database database, final boolean enabled, final int maxPending) {
+        this.database = database;
+        this.maxPending = enabled ? Math.max(1, maxPending) : 1;
+    }
+
+    /**
+     * Queue a row to be written, a later write for the same primary key replaces the values
+     * of every column it contains.
+     *
+     * @param table DatabaseTable the row belongs to
+     * @param values Column name to value, must contain every primary key column
+     */
+    public final void write(final DatabaseTable table, final Map<String, Object> values) {
+        try {
+            if(!table.getDatabase().name().equals(this.database.name())) {
+                throw new SQLDatabaseException("Table '" + table.getName() + "' does not belong to database '" + this.database.name() + "'");
+            }
+
+            // An unknown column would fail every row flushed alongside this one
+            for(final String name : values.keySet()) {
+                if(table.getColumns().stream().noneMatch(column -> column.getName().equals(name))) {
+                    throw new SQLDatabaseException("Write for '" + table.getName() + "' has unknown column '" + name + "'");
+                }
+            }
+
+            final List<Object> primary = new ArrayList<>();
+            for(final TableColumn column : table.getColumns()) {
+                if(column.isPrimaryKey()) {
+                    if(!values.containsKey(column.getName())) {
+                        throw new SQLDatabaseException("Write for '" + table.getName() + "' is missing primary key '" + column.getName() + "'");
+                    }
+
+                    primary.add(values.get(column.getName()));
+                }
+            }
+
+            if(primary.isEmpty()) {
+                throw new SQLDatabaseException("Table '" + table.getName() + "' has no primary key to buffer writes by");
+            }
+            if(this.database instanceof ShardedDatabase && !values.containsKey(table.getShardKey())) {
+                throw new SQLDatabaseException("Write for sharded table '" + table.getName() + "' is missing shard key '" + table.getShardKey() + "'");
+            }
+
+            final boolean full;
+            synchronized (this) {
+                this.pending.computeIfAbsent(new PendingKey(table.getName(), primary), key -> new PendingWrite(key, table))
+                        .values
+                        .putAll(values);
+                full = this.pending.size() >= this.maxPending;
+            }
+
+            if(full) {
+                this.flush();
+            }
+        } catch (final SQLDatabaseException ignored) {}
+    }
+
+    /**
+     * @return - Amount of rows waiting to be written
+     */
+    public final synchronized int getPending() {
+        return this.pending.size();
+    }
+
+    /**
+     * Write all pending rows in a single transaction, flushes run one after another so writes
+     * to the same key are never reordered. When the transaction fails each upsert is retried on its own,
+     * rows of upserts that still fail are kept for the next flush.
+     *
+     * @return Void called for completion of this flush
+     */
+    public final synchronized ListenableFuture<Void> flush() {
+        if(this.pending.isEmpty()) {
+            return this.flushing;
+        }
+
+        final Map<PendingKey, PendingWrite> rows = this.pending;
+        this.pending = new HashMap<>();
+
+        final ListenableFuture<Void> previous = Futures.catching(this.flushing, Throwable.class, ex -> null, MoreExecutors.directExecutor());
+        this.flushing = Futures.transformAsync(previous, ignored -> this.write(rows.values()), MoreExecutors.directExecutor());
+
+        return this.flushing;
+    }
+
+    /**
+     * Start flushing on a fixed interval
+     *
+     * @param interval Milliseconds between flushes
+     */
+    final synchronized void schedule(final long interval) {
+        this.cancel();
+        this.task = SQLConnectionHandler.INSTANCE.getScheduler()
+                .scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the interval flush, pending rows are kept
+     */
+    final synchronized void cancel() {
+        if(this.task != null) {
+            this.task.cancel(false);
+            this.task = null;
+        }
+    }
+
+    /**
+     * Write rows in a transaction per database, rows of a sharded database are routed to the shard of their shard key
+     *
+     * @param rows Coalesced rows to write
+     * @return Void called once every database has been written, failed when any fails
+     */
+    private ListenableFuture<Void> write(final Collection<PendingWrite> rows) {
+        final List<ListenableFuture<Void>> written = new ArrayList<>();
+        this.route(rows).forEach((database, routed) -> {
+            final Map<String, List<PendingWrite>> statements = WriteBehindBuffer.group(routed);
+            written.add(Futures.catchingAsync(this.executor(database, statements.values()).transaction(),
+                    Throwable.class,
+                    ex -> this.isolate(database, statements, ex),
+                    MoreExecutors.directExecutor()));
+        });
+
+        return Futures.transform(Futures.allAsList(written), ignored -> null, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Write each statement of a failed transaction in a transaction of its own, so only rows of statements
+     * that fail again count the failure and are put back. Rows of the other statements are written.
+     *
+     * @param database Database the rows failed to be written to
+     * @param statements Rows grouped by the upsert writing them
+     * @param cause Failure of the transaction
+     * @return Void called once every statement has been written, failed when any fails
+     */
+    private ListenableFuture<Void> isolate(final Database database, final Map<String, List<PendingWrite>> statements, final Throwable cause) {
+        if(statements.size() == 1) {
+            this.restore(database, statements.values().iterator().next(), cause);
+            return Futures.immediateFailedFuture(cause);
+        }
+
+        final List<ListenableFuture<Void>> written = new ArrayList<>();
+        statements.values().forEach(rows -> written.add(Futures.catchingAsync(this.executor(database, Collections.singletonList(rows)).transaction(),
+                Throwable.class,
+                ex -> {
+                    this.restore(database, rows, ex);
+                    return Futures.<Void>immediateFailedFuture(ex);
+                },
+                MoreExecutors.directExecutor())));
+
+        return Futures.transform(Futures.allAsList(written), ignored -> null, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Put rows of a failed flush back to be written by the next flush. Values written for the same key since
+     * the flush started are newer, so they are kept and the failed values only fill in other columns.
+     * Rows that failed MAX_ATTEMPTS times are dropped.
+     *
+     * @param database Database the rows failed to be written to
+     * @param rows Rows of the failed flush
+     * @param cause Failure of the flush
+     */
+    private synchronized void restore(final Database database, final List<PendingWrite> rows, final Throwable cause) {
+        int dropped = 0;
+        for(final PendingWrite row : rows) {
+            if(++row.attempts >= MAX_ATTEMPTS) {
+                dropped++;
+                continue;
+            }
+
+            final PendingWrite newer = this.pending.putIfAbsent(row.key, row);
+            if(newer != null) {
+                row.values.forEach(newer.values::putIfAbsent);
+                newer.attempts = Math.max(newer.attempts, row.attempts);
+            }
+        }
+
+        SQLConnectionHandler.INSTANCE.getModuleLogger().info("[WriteBehindBuffer] - Failed to write %d rows to '%s', retrying %d on the next flush: %s",
+                rows.size(),
+                database.name(),
+                rows.size() - dropped,
+                cause.getMessage());
+        if(dropped > 0) {
+            SQLConnectionHandler.INSTANCE.getModuleLogger().info("[WriteBehindBuffer] - Dropped %d rows for '%s' after %d failed writes",
+                    dropped,
+                    database.name(),
+                    MAX_ATTEMPTS);
+        }
+    }
+
+    /**
+     * Group rows by the database they are written to
+     *
+     * @param rows Coalesced rows to write
+     * @return Database to its rows
+     */
+    private Map<Database, List<PendingWrite>> route(final Collection<PendingWrite> rows) {
+        final Map<Database, List<PendingWrite>> routed = new LinkedHashMap<>();
+        if(!(this.database instanceof ShardedDatabase)) {
+            routed.put(this.database, new ArrayList<>(rows));
+            return routed;
+        }
+
+        final ShardedDatabase sharded = (ShardedDatabase) this.database;
+        rows.forEach(row -> routed.computeIfAbsent(sharded.shard(row.values.get(row.table.getShardKey())), database -> new ArrayList<>())
+                .add(row));
+
+        return routed;
+    }
+
+    /**
+     * Group rows by table and column set, each group is written by one bulk upsert
+     *
+     * @param rows Coalesced rows to write
+     * @return Statement key to its rows
+     */
+    private static Map<String, List<PendingWrite>> group(final Iterable<PendingWrite> rows) {
+        final Map<String, List<PendingWrite>> grouped = new LinkedHashMap<>();
+        rows.forEach(row -> grouped.computeIfAbsent(row.table.getName() + ":" + String.join(",", row.values.keySet()),
+                key -> new ArrayList<>())
+                .add(row));
+
+        return grouped;
+    }
+
+    /**
+     * Build an SQLExecutor with one bulk upsert per group of rows
+     *
+     * @param database Database the rows are written to
+     * @param statements Rows grouped by table and column set
+     * @return SQLExecutor
+     */
+    private SQLExecutor executor(final Database database, final Collection<List<PendingWrite>> statements) {
+        final SQLExecutor executor = new SQLExecutor(database);
+        for(final List<PendingWrite> rows : statements) {
+            final PendingWrite first = rows.get(0);
+            final SQLBulkUpsert upsert = new SQLBulkUpsert(first.table, new ArrayList<>(first.values.keySet()));
+            rows.forEach(row -> upsert.row(row.values.values().toArray()));
+
+            executor.add(upsert.build());
+        }
+
+        return executor;
+    }
+}
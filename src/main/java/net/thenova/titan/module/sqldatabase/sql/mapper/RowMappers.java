@@ -0,0 +1,369 @@
+package net.thenova.titan.module.sqldatabase.sql.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class RowMappers {
+
+    private interface ValueReader {
+        Object read(final ResultSet res, final int index) throws SQLException;
+    }
+
+    private interface ColumnReader {
+        void read(final Object target, final ResultSet res) throws Throwable;
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /* Kept with each class rather than in a map, so classes of unloaded plugins can still be collected */
+    private static final ClassValue<Map<String, RowMapper<?>>> MAPPERS = new ClassValue<Map<String, RowMapper<?>>>() {
+        @Override
+        protected Map<String, RowMapper<?>> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private RowMappers() {}
+
+    /**
+     * Return the compiled RowMapper for a type and the shape of a ResultSet
+     *
+     * @param type Class being mapped to
+     * @param res ResultSet the mapper is used on
+     * @param <T> Type being mapped to
+     * @return RowMapper
+     * @throws SQLException Thrown when the type can not be mapped from the columns
+     */
+    public static <T> RowMapper<T> of(final Class<T> type, final ResultSet res) throws SQLException {
+        return RowMappers.of(type, res.getMetaData());
+    }
+
+    /**
+     * Return the compiled RowMapper for a type and query shape, mappers are compiled once
+     * and column indexes resolved when compiling so mapping a row does no lookups.
+     *
+     * @param type Class being mapped to
+     * @param meta ResultSetMetaData of the query
+     * @param <T> Type being mapped to
+     * @return RowMapper
+     * @throws SQLException Thrown when the type can not be mapped from the columns
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> of(final Class<T> type, final ResultSetMetaData meta) throws SQLException {
+        final String[] labels = new String[meta.getColumnCount()];
+        for(int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1);
+        }
+
+        final Map<String, RowMapper<?>> shapes = MAPPERS.get(type);
+        final String shape = String.join(",", labels);
+
+        RowMapper<?> mapper = shapes.get(shape);
+        if(mapper == null) {
+            mapper = RowMappers.compile(type, labels);
+            shapes.putIfAbsent(shape, mapper);
+        }
+
+        return (RowMapper<T>) mapper;
+    }
+
+    /**
+     * Build a RowMapper, single column queries map straight to supported value types,
+     * otherwise a no-args constructor with fields matched by column label is used, falling back
+     * to a constructor taking every column in order.
+     *
+     * @param type Class being mapped to
+     * @param labels Column labels in order
+     * @param <T> Type being mapped to
+     * @return RowMapper
+     * @throws SQLException Thrown when the type can not be mapped from the columns
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> RowMapper<T> compile(final Class<T> type, final String[] labels) throws SQLException {
+        final ValueReader scalar = RowMappers.scalar(type);
+        if(scalar != null && labels.length == 1) {
+            return res -> (T) scalar.read(res, 1);
+        }
+
+        try {
+            final Constructor<T> empty = RowMappers.constructor(type, 0);
+            if(empty != null) {
+                return RowMappers.compileFields(type, empty, labels);
+            }
+
+            final Constructor<T> full = RowMappers.constructor(type, labels.length);
+            if(full != null) {
+                return RowMappers.compileConstructor(type, full);
+            }
+        } catch (final IllegalAccessException ex) {
+            throw new SQLException("Failed to access members of " + type.getName(), ex);
+        }
+
+        throw new SQLException("No constructor of " + type.getName() + " can be mapped from columns " + Arrays.toString(labels));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RowMapper<T> compileFields(final Class<T> type, final Constructor<T> constructor, final String[] labels) throws IllegalAccessException {
+        final MethodHandle create = LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+
+        final Map<String, Field> fields = new HashMap<>();
+        for(Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for(final Field field : current.getDeclaredFields()) {
+                if(!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                    fields.putIfAbsent(RowMappers.normalize(field.getName()), field);
+                }
+            }
+        }
+
+        final List<ColumnReader> readers = new ArrayList<>();
+        for(int i = 0; i < labels.length; i++) {
+            final Field field = fields.get(RowMappers.normalize(labels[i]));
+            if(field != null) {
+                field.setAccessible(true);
+                readers.add(RowMappers.column(field.getType(), LOOKUP.unreflectSetter(field), i + 1));
+            }
+        }
+
+        final ColumnReader[] columns = readers.toArray(new ColumnReader[0]);
+        return res -> {
+            try {
+                final Object target = (Object) create.invokeExact();
+                for(final ColumnReader column : columns) {
+                    column.read(target, res);
+                }
+
+                return (T) target;
+            } catch (final SQLException ex) {
+                throw ex;
+            } catch (final Throwable ex) {
+                throw new SQLException("Failed to map row to " + type.getName(), ex);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RowMapper<T> compileConstructor(final Class<T> type, final Constructor<T> constructor) throws IllegalAccessException {
+        final Class<?>[] parameters = constructor.getParameterTypes();
+        final MethodHandle create = LOOKUP.unreflectConstructor(constructor)
+                .asType(MethodType.genericMethodType(parameters.length))
+                .asSpreader(Object[].class, parameters.length);
+
+        final ValueReader[] readers = new ValueReader[parameters.length];
+        for(int i = 0; i < parameters.length; i++) {
+            readers[i] = RowMappers.value(parameters[i]);
+        }
+
+        return res -> {
+            final Object[] arguments = new Object[readers.length];
+            for(int i = 0; i < readers.length; i++) {
+                arguments[i] = readers[i].read(res, i + 1);
+            }
+
+            try {
+                return (T) (Object) create.invokeExact(arguments);
+            } catch (final Throwable ex) {
+                throw new SQLException("Failed to map row to " + type.getName(), ex);
+            }
+        };
+    }
+
+    /**
+     * Build a reader setting a column on to a field, primitives are read and set without boxing
+     */
+    private static ColumnReader column(final Class<?> type, final MethodHandle setter, final int index) {
+        if(type == int.class) {
+            final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+            return (target, res) -> { handle.invokeExact(target, res.getInt(index)); };
+        }
+        if(type == long.class) {
+            final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+            return (target, res) -> { handle.invokeExact(target, res.getLong(index)); };
+        }
+        if(type == double.class) {
+            final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+            return (target, res) -> { handle.invokeExact(target, res.getDouble(index)); };
+        }
+        if(type == float.class) {
+            final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, float.class));
+            return (target, res) -> { handle.invokeExact(target, res.getFloat(index)); };
+        }
+        if(type == boolean.class) {
+            final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+            return (target, res) -> { handle.invokeExact(target, res.getBoolean(index)); };
+        }
+
+        final ValueReader reader = RowMappers.value(type);
+        final MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (target, res) -> { handle.invokeExact(target, reader.read(res, index)); };
+    }
+
+    /**
+     * Return a reader for any supported type, falling back to ResultSet#getObject(int, Class)
+     */
+    private static ValueReader value(final Class<?> type) {
+        final ValueReader scalar = RowMappers.scalar(type);
+        if(scalar != null) {
+            return scalar;
+        }
+        if(type == int.class) {
+            return ResultSet::getInt;
+        }
+        if(type == long.class) {
+            return ResultSet::getLong;
+        }
+        if(type == double.class) {
+            return ResultSet::getDouble;
+        }
+        if(type == float.class) {
+            return ResultSet::getFloat;
+        }
+        if(type == boolean.class) {
+            return ResultSet::getBoolean;
+        }
+        if(type == short.class) {
+            return ResultSet::getShort;
+        }
+        if(type == byte.class) {
+            return ResultSet::getByte;
+        }
+
+        return (res, index) -> res.getObject(index, type);
+    }
+
+    /**
+     * Return a reader for value types a single column query can map to, null when not a value type
+     */
+    private static ValueReader scalar(final Class<?> type) {
+        if(type == String.class) {
+            return ResultSet::getString;
+        }
+        if(type == Integer.class) {
+            return (res, index) -> {
+                final int value = res.getInt(index);
+                return res.wasNull() ? null : value;
+            };
+        }
+        if(type == Long.class) {
+            return (res, index) -> {
+                final long value = res.getLong(index);
+                return res.wasNull() ? null : value;
+            };
+        }
+        if(type == Double.class) {
+            return (res, index) -> {
+                final double value = res.getDouble(index);
+                return res.wasNull() ? null : value;
+            };
+        }
+        if(type == Float.class) {
+            return (res, index) -> {
+                final float value = res.getFloat(index);
+                return res.wasNull() ? null : value;
+            };
+        }
+        if(type == Boolean.class) {
+            return (res, index) -> {
+                final boolean value = res.getBoolean(index);
+                return res.wasNull() ? null : value;
+            };
+        }
+        if(type == UUID.class) {
+            return (res, index) -> {
+                final String value = res.getString(index);
+                return value == null ? null : UUID.fromString(value);
+            };
+        }
+        if(type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        }
+        if(type == Timestamp.class || type == Date.class) {
+            return ResultSet::getTimestamp;
+        }
+        if(type == Instant.class) {
+            return (res, index) -> {
+                final Timestamp value = res.getTimestamp(index);
+                return value == null ? null : value.toInstant();
+            };
+        }
+        if(type == byte[].class) {
+            return ResultSet::getBytes;
+        }
+        if(type.isEnum()) {
+            return (res, index) -> {
+                final String value = res.getString(index);
+                return value == null ? null : RowMappers.constant(type, value);
+            };
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object constant(final Class<?> type, final String value) {
+        return Enum.valueOf((Class) type, value);
+    }
+
+    /**
+     * Return the only constructor taking an amount of parameters
+     *
+     * @throws SQLException Thrown when more than one constructor takes that many parameters
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Constructor<T> constructor(final Class<T> type, final int parameters) throws SQLException {
+        Constructor<?> found = null;
+        for(final Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if(constructor.getParameterCount() != parameters) {
+                continue;
+            }
+            if(found != null) {
+                throw new SQLException("Ambiguous mapping to " + type.getName() + ", more than one constructor takes " + parameters + " parameters");
+            }
+
+            found = constructor;
+        }
+
+        if(found != null) {
+            found.setAccessible(true);
+        }
+        return (Constructor<T>) found;
+    }
+
+    /**
+     * Normalize names so player_name, playerName and PLAYERNAME match
+     */
+    private static String normalize(final String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+}
@@ -0,0 +1,109 @@
+package net.thenova.titan.module.sqldatabase.sql.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class LatencyHistogram {
+
+    /* Linear buckets within each power of two, 3 bits keeps the error under 12.5% */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration, lock-free and allocation free
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public final void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+
+        this.counts.incrementAndGet(LatencyHistogram.index(value));
+        this.count.increment();
+        this.total.add(value);
+
+        long current;
+        while(value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) {
+            // Retry until max holds the largest value
+        }
+    }
+
+    /**
+     * @return - Point in time view of the recorded durations
+     */
+    public final LatencySnapshot snapshot() {
+        final long[] counts = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.counts.get(i);
+            count += counts[i];
+        }
+
+        return new LatencySnapshot(count,
+                count == 0 ? 0 : this.total.sum() / count,
+                LatencyHistogram.percentile(counts, count, 0.5),
+                LatencyHistogram.percentile(counts, count, 0.99),
+                LatencyHistogram.percentile(counts, count, 0.999),
+                this.max.get());
+    }
+
+    private static int index(final long value) {
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return Upper bound of the values counted by a bucket
+     */
+    private static long bound(final int index) {
+        if(index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int magnitude = index / SUB_BUCKETS + SUB_BITS - 1;
+        final long sub = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (magnitude - SUB_BITS)) - 1;
+    }
+
+    private static long percentile(final long[] counts, final long count, final double percentile) {
+        if(count == 0) {
+            return 0;
+        }
+
+        final long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return LatencyHistogram.bound(i);
+            }
+        }
+
+        return LatencyHistogram.bound(counts.length - 1);
+    }
+}
@@ -0,0 +1,158 @@
+package net.thenova.titan.module.sqldatabase.sql.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class SQLMetrics {
+
+    /* Distinct queries tracked before further queries are grouped together */
+    private static final int MAX_QUERIES = 5000;
+    private static final String OTHER = "<other>";
+
+    private static final Pattern STRING = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ROWS = Pattern.compile("(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))(?:\\s*,\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final class Phases {
+        private final Map<SQLPhase, LatencyHistogram> histograms = new EnumMap<>(SQLPhase.class);
+
+        private Phases() {
+            for(final SQLPhase phase : SQLPhase.values()) {
+                this.histograms.put(phase, new LatencyHistogram());
+            }
+        }
+
+        private Map<SQLPhase, LatencySnapshot> snapshot() {
+            final Map<SQLPhase, LatencySnapshot> snapshot = new EnumMap<>(SQLPhase.class);
+            this.histograms.forEach((phase, histogram) -> snapshot.put(phase, histogram.snapshot()));
+
+            return snapshot;
+        }
+    }
+
+    private final Map<String, Phases> databases = new ConcurrentHashMap<>();
+    private final Map<String, Phases> queries = new ConcurrentHashMap<>();
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * Record a phase of an execution for its database
+     *
+     * @param database Database name
+     * @param phase SQLPhase
+     * @param nanos Duration in nanoseconds
+     */
+    public final void record(final String database, final SQLPhase phase, final long nanos) {
+        this.databases.computeIfAbsent(database, key -> new Phases()).histograms.get(phase).record(nanos);
+    }
+
+    /**
+     * Record a phase of a single statement for its database and normalized query
+     *
+     * @param database Database name
+     * @param query SQL as executed
+     * @param phase SQLPhase
+     * @param nanos Duration in nanoseconds
+     */
+    public final void record(final String database, final String query, final SQLPhase phase, final long nanos) {
+        this.record(database, phase, nanos);
+
+        final String fingerprint = this.fingerprint(query);
+        Phases phases = this.queries.get(fingerprint);
+        if(phases == null) {
+            phases = this.queries.computeIfAbsent(this.queries.size() < MAX_QUERIES ? fingerprint : OTHER, key -> new Phases());
+        }
+
+        phases.histograms.get(phase).record(nanos);
+    }
+
+    /**
+     * @param database Database name
+     * @return Snapshot of every phase for the database, empty when nothing was recorded
+     */
+    public final Map<SQLPhase, LatencySnapshot> database(final String database) {
+        final Phases phases = this.databases.get(database);
+
+        return phases == null ? Collections.emptyMap() : phases.snapshot();
+    }
+
+    /**
+     * @param fingerprint Normalized query, see {@link #fingerprint(String)}
+     * @return Snapshot of every phase for the query, empty when nothing was recorded
+     */
+    public final Map<SQLPhase, LatencySnapshot> query(final String fingerprint) {
+        final Phases phases = this.queries.get(fingerprint);
+
+        return phases == null ? Collections.emptyMap() : phases.snapshot();
+    }
+
+    /**
+     * @return Names of databases with recorded executions
+     */
+    public final Set<String> getDatabases() {
+        return Collections.unmodifiableSet(this.databases.keySet());
+    }
+
+    /**
+     * @return Normalized queries with recorded executions
+     */
+    public final Set<String> getQueries() {
+        return Collections.unmodifiableSet(this.queries.keySet());
+    }
+
+    /**
+     * Drop everything recorded
+     */
+    public final void reset() {
+        this.databases.clear();
+        this.queries.clear();
+    }
+
+    /**
+     * Normalize a query so executions differing only in literals, IN list length or
+     * multi-row VALUES count share a fingerprint
+     *
+     * @param query SQL
+     * @return Normalized SQL
+     */
+    public final String fingerprint(final String query) {
+        String fingerprint = this.fingerprints.get(query);
+        if(fingerprint == null) {
+            fingerprint = SQLMetrics.normalize(query);
+            if(this.fingerprints.size() < MAX_QUERIES * 2) {
+                this.fingerprints.put(query, fingerprint);
+            }
+        }
+
+        return fingerprint;
+    }
+
+    private static String normalize(final String query) {
+        String normalized = STRING.matcher(query).replaceAll("?");
+        normalized = NUMBER.matcher(normalized).replaceAll("?");
+        normalized = ROWS.matcher(normalized).replaceAll("$1, ...");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?+)");
+
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,31 @@
+package net.thenova.titan.module.sqldatabase.sql.metrics;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public enum SQLPhase {
+    /* Waiting in the executor queue */
+    QUEUE,
+    /* Borrowing a connection from the Hikari pool */
+    ACQUIRE,
+    /* Preparing the statement and binding parameters */
+    PREPARE,
+    /* Executing the statement */
+    EXECUTE,
+    /* Running the SQLConsumer over the result */
+    CONSUME,
+    /* Committing a transaction */
+    COMMIT
+}
@@ -1,11 +1,17 @@
 package net.thenova.titan.module.sqldatabase.tables;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import net.thenova.titan.module.sqldatabase.sql.SQLBulkUpsert;
+import net.thenova.titan.module.sqldatabase.sql.SQLConnectionHandler;
 import net.thenova.titan.module.sqldatabase.sql.SQLExecutor;
 import net.thenova.titan.module.sqldatabase.tables.column.TableColumn;
+import net.thenova.titan.module.sqldatabase.tables.index.TableIndex;
+import net.thenova.titan.module.sqldatabase.tables.partition.TablePartitioning;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,8 +37,11 @@ public abstract class DatabaseTable {
     private final String name;
 
     private final List<TableColumn> columns = new ArrayList<>();
+    private final List<TableIndex> indexes = new ArrayList<>();
 
     private String uniqueKey = null;
+    private TablePartitioning partitioning = null;
+    @Getter(AccessLevel.NONE) private String shardKey = null;
 
     public DatabaseTable(final Database database, final String name) {
         this.database = database;
@@ -51,11 +60,63 @@ public abstract class DatabaseTable {
         this.columns.add(column);
     }
 
+    /**
+     * Declare secondary indexes, created with the table and added to existing tables on start up
+     *
+     * @param indexes - TableIndex
+     */
+    protected final void registerIndex(final TableIndex... indexes) {
+        this.indexes.addAll(Arrays.asList(indexes));
+    }
+
     protected final void addUniqueKey(final String key) {
         this.uniqueKey = key;
     }
 
-    public SQLExecutor build() {
+    /**
+     * Split the table into RANGE partitions by time, partitions are created ahead of time and dropped
+     * past retention by the handler. Every primary and unique key must include the partitioning column and
+     * the table cannot have a foreign key, checked when the table is built.
+     *
+     * @param partitioning - TablePartitioning
+     */
+    protected final void setPartitioning(final TablePartitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Set the column holding the shard key of a row, used to route upserts and buffered writes
+     * of a sharded database. Defaults to the first primary key column.
+     *
+     * @param column - Column name
+     */
+    protected final void setShardKey(final String column) {
+        this.shardKey = column;
+    }
+
+    /**
+     * @return - Column holding the shard key of a row, null when there is none
+     */
+    public final String getShardKey() {
+        if(this.shardKey != null) {
+            return this.shardKey;
+        }
+
+        return this.columns.stream()
+                .filter(TableColumn::isPrimaryKey)
+                .map(TableColumn::getName)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Build the CREATE TABLE statement for this table
+     *
+     * @return - String
+     */
+    public String definition() {
+        this.validate();
+
         final StringBuilder rtn = new StringBuilder();
         rtn.append("CREATE TABLE IF NOT EXISTS `").append(this.name).append("` (");
 
@@ -83,18 +144,88 @@ public abstract class DatabaseTable {
             rtn.append(", UNIQUE KEY(").append(this.uniqueKey).append(")");
         }
 
+        this.indexes.forEach(index -> rtn.append(", ").append(index.asQuery()));
+
         rtn.append(") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
 
+        if(this.partitioning != null) {
+            rtn.append(" ").append(this.partitioning.asQuery());
+        }
 
+        return rtn.toString();
+    }
+
+    /**
+     * Check the table can be created as declared. MariaDB rejects partitioned tables with foreign keys, or with
+     * a primary or unique key that does not include the partitioning column.
+     *
+     * @throws IllegalStateException - When the table cannot be created
+     */
+    public final void validate() {
+        if(this.partitioning == null) {
+            return;
+        }
+
+        final String column = this.partitioning.getColumn();
+
+        if(this.columns.stream().anyMatch(TableColumn::isForeign)) {
+            throw new IllegalStateException("Partitioned table " + this.name + " cannot have a foreign key");
+        }
+
+        final List<String> primary = this.columns.stream()
+                .filter(TableColumn::isPrimaryKey)
+                .map(TableColumn::getName)
+                .collect(Collectors.toList());
+        if(!primary.isEmpty() && !primary.contains(column)) {
+            throw new IllegalStateException("Primary key of partitioned table " + this.name + " must include partitioning column " + column);
+        }
+
+        if(this.uniqueKey != null && Arrays.stream(this.uniqueKey.split(","))
+                .map(part -> part.replaceAll("\\(.*\\)|`", "").trim())
+                .noneMatch(column::equals)) {
+            throw new IllegalStateException("Unique key (" + this.uniqueKey + ") of partitioned table " + this.name
+                    + " must include partitioning column " + column);
+        }
 
-        return new SQLExecutor(this.database).queryUpdate(rtn.toString());
+        this.indexes.stream()
+                .filter(TableIndex::isUnique)
+                .filter(index -> index.getParts().stream().noneMatch(part -> part.getColumn().equals(column)))
+                .findFirst()
+                .ifPresent(index -> {
+                    throw new IllegalStateException("Unique index " + index.getName() + " of partitioned table " + this.name
+                            + " must include partitioning column " + column);
+                });
     }
 
+    public SQLExecutor build() {
+        return this.build(this.database);
+    }
+
+    /**
+     * Build table creation against a specific database, used to create the table on every shard
+     *
+     * @param database - Database
+     * @return - SQLExecutor
+     */
+    public SQLExecutor build(final Database database) {
+        return new SQLExecutor(database).queryUpdate(this.definition());
+    }
+
+
+    /**
+     * Start a multi-row INSERT ... ON DUPLICATE KEY UPDATE for this table
+     *
+     * @param columns - Column names in the order row values are given
+     * @return - SQLBulkUpsert
+     */
+    public SQLBulkUpsert upsert(final String... columns) {
+        return new SQLBulkUpsert(this, columns);
+    }
 
     /**
      * Perform table creation
      */
     public void create() {
-        this.build().commit();
+        SQLConnectionHandler.INSTANCE.createTables(Collections.singletonList(this));
     }
 }
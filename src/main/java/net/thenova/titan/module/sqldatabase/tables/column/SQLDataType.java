@@ -1,5 +1,7 @@
 package net.thenova.titan.module.sqldatabase.tables.column;
 
+import java.sql.Types;
+
 /**
  * Copyright 2019 ipr0james
  * <p>
@@ -18,4 +20,13 @@ package net.thenova.titan.module.sqldatabase.tables.column;
 public interface SQLDataType {
 
     String type();
+
+    /**
+     * Type parameters for the column are bound as, used to type nulls
+     *
+     * @return - java.sql.Types
+     */
+    default int sqlType() {
+        return Types.NULL;
+    }
 }
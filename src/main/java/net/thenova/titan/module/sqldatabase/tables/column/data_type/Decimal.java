@@ -2,6 +2,8 @@ package net.thenova.titan.module.sqldatabase.tables.column.data_type;
 
 import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
 
+import java.sql.Types;
+
 /**
  * Copyright 2020 ipr0james
  * <p>
@@ -22,4 +24,9 @@ public class Decimal implements SQLDataType {
     public final String type() {
         return "decimal";
     }
+
+    @Override
+    public final int sqlType() {
+        return Types.DECIMAL;
+    }
 }
@@ -3,6 +3,8 @@ package net.thenova.titan.module.sqldatabase.tables.column.data_type;
 import lombok.RequiredArgsConstructor;
 import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
 
+import java.sql.Types;
+
 /**
  * Copyright 2019 ipr0james
  * <p>
@@ -32,4 +34,9 @@ public final class Double implements SQLDataType {
     public final String type() {
         return "double(" + before + "," + after + ")";
     }
+
+    @Override
+    public final int sqlType() {
+        return Types.DOUBLE;
+    }
 }
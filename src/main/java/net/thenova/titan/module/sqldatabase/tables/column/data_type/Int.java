@@ -3,6 +3,8 @@ package net.thenova.titan.module.sqldatabase.tables.column.data_type;
 import lombok.RequiredArgsConstructor;
 import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
 
+import java.sql.Types;
+
 /**
  * Copyright 2019 ipr0james
  * <p>
@@ -33,4 +35,9 @@ public class Int implements SQLDataType {
     public String type() {
         return "int(" + length + ")";
     }
+
+    @Override
+    public int sqlType() {
+        return Types.INTEGER;
+    }
 }
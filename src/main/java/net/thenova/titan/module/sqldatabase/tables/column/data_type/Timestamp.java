@@ -2,6 +2,8 @@ package net.thenova.titan.module.sqldatabase.tables.column.data_type;
 
 import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
 
+import java.sql.Types;
+
 /**
  * Copyright 2019 ipr0james
  * <p>
@@ -23,4 +25,9 @@ public final class Timestamp implements SQLDataType {
     public final String type() {
         return "timestamp";
     }
+
+    @Override
+    public final int sqlType() {
+        return Types.TIMESTAMP;
+    }
 }
@@ -3,6 +3,8 @@ package net.thenova.titan.module.sqldatabase.tables.column.data_type;
 import lombok.RequiredArgsConstructor;
 import net.thenova.titan.module.sqldatabase.tables.column.SQLDataType;
 
+import java.sql.Types;
+
 /**
  * Copyright 2019 ipr0james
  * <p>
@@ -36,4 +38,9 @@ public final class VarChar implements SQLDataType {
     public final String type() {
         return "varchar(" + length + ")";
     }
+
+    @Override
+    public final int sqlType() {
+        return Types.VARCHAR;
+    }
 }
@@ -0,0 +1,130 @@
+package net.thenova.titan.module.sqldatabase.tables.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class TableIndex {
+
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Part {
+        private final String column;
+        /* Leading characters indexed, 0 for the whole value */
+        private final int length;
+        private final boolean descending;
+
+        /**
+         * @return - Key part as written in the index definition
+         */
+        public final String asQuery() {
+            return "`" + this.column + "`"
+                    + (this.length > 0 ? "(" + this.length + ")" : "")
+                    + (this.descending ? " DESC" : "");
+        }
+    }
+
+    private final String name;
+    private final List<Part> parts = new ArrayList<>();
+
+    private boolean unique = false;
+
+    /**
+     * Make it so no 2 rows can share the indexed values
+     *
+     * @return - TableIndex
+     */
+    public final TableIndex setUnique() {
+        this.unique = true;
+
+        return this;
+    }
+
+    /**
+     * Add the next column of the index, columns are used by lookups in the order they are added
+     *
+     * @param column - String
+     * @return - TableIndex
+     */
+    public final TableIndex column(final String column) {
+        return this.column(column, 0);
+    }
+
+    /**
+     * Add the next column of the index, indexing only its leading characters. Required for Text and
+     * LongText columns, and keeps indexes on long VarChar columns small.
+     *
+     * @param column - String
+     * @param length - Leading characters indexed
+     * @return - TableIndex
+     */
+    public final TableIndex column(final String column, final int length) {
+        this.parts.add(new Part(column, length, false));
+
+        return this;
+    }
+
+    /**
+     * Add the next column of the index in descending order, for lookups sorting newest first
+     *
+     * @param column - String
+     * @return - TableIndex
+     */
+    public final TableIndex descending(final String column) {
+        this.parts.add(new Part(column, 0, true));
+
+        return this;
+    }
+
+    /**
+     * Add trailing columns only read by lookups, so those lookups are answered from the index without reading rows
+     *
+     * @param columns - String
+     * @return - TableIndex
+     */
+    public final TableIndex covering(final String... columns) {
+        Arrays.stream(columns).forEach(this::column);
+
+        return this;
+    }
+
+    /**
+     * @return - Parts of the index in order
+     */
+    public final List<Part> getParts() {
+        return Collections.unmodifiableList(this.parts);
+    }
+
+    /**
+     * Build query for the index, for use building table
+     *
+     * @return - String
+     */
+    public final String asQuery() {
+        return (this.unique ? "UNIQUE KEY" : "KEY") + " `" + this.name + "` ("
+                + this.parts.stream().map(Part::asQuery).collect(Collectors.joining(", "))
+                + ")";
+    }
+}
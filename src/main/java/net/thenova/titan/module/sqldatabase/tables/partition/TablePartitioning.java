@@ -0,0 +1,216 @@
+package net.thenova.titan.module.sqldatabase.tables.partition;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TablePartitioning {
+
+    /* Catch-all partition, split ahead of time into ranged partitions by the maintainer */
+    public static final String MAX_PARTITION = "pmax";
+
+    public enum Interval {
+        HOUR("yyyyMMddHH"),
+        DAY("yyyyMMdd"),
+        WEEK("yyyyMMdd"),
+        MONTH("yyyyMM");
+
+        private final DateTimeFormatter format;
+
+        Interval(final String pattern) {
+            this.format = DateTimeFormatter.ofPattern(pattern);
+        }
+
+        /**
+         * @param time UTC time
+         * @return Start of the interval holding the time
+         */
+        public ZonedDateTime start(final ZonedDateTime time) {
+            switch (this) {
+                case HOUR:
+                    return time.truncatedTo(ChronoUnit.HOURS);
+                case DAY:
+                    return time.truncatedTo(ChronoUnit.DAYS);
+                case WEEK:
+                    return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                default:
+                    return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            }
+        }
+
+        /**
+         * @param start Start of an interval
+         * @return Start of the interval after it
+         */
+        public ZonedDateTime next(final ZonedDateTime start) {
+            switch (this) {
+                case HOUR:
+                    return start.plusHours(1);
+                case DAY:
+                    return start.plusDays(1);
+                case WEEK:
+                    return start.plusWeeks(1);
+                default:
+                    return start.plusMonths(1);
+            }
+        }
+
+        /**
+         * @param start Start of an interval
+         * @return Start of the interval before it
+         */
+        public ZonedDateTime previous(final ZonedDateTime start) {
+            switch (this) {
+                case HOUR:
+                    return start.minusHours(1);
+                case DAY:
+                    return start.minusDays(1);
+                case WEEK:
+                    return start.minusWeeks(1);
+                default:
+                    return start.minusMonths(1);
+            }
+        }
+    }
+
+    private enum Unit {
+        TIMESTAMP,
+        SECONDS,
+        MILLISECONDS
+    }
+
+    private final String column;
+    private final Interval interval;
+    @Getter(AccessLevel.NONE) private final Unit unit;
+
+    private int retention = 0;
+    private int ahead = 3;
+
+    /**
+     * Partition by a Timestamp column
+     *
+     * @param column - Column name
+     * @param interval - Interval covered by each partition
+     * @return - TablePartitioning
+     */
+    public static TablePartitioning timestamp(final String column, final Interval interval) {
+        return new TablePartitioning(column, interval, Unit.TIMESTAMP);
+    }
+
+    /**
+     * Partition by a BigInt column holding epoch milliseconds
+     *
+     * @param column - Column name
+     * @param interval - Interval covered by each partition
+     * @return - TablePartitioning
+     */
+    public static TablePartitioning epochMillis(final String column, final Interval interval) {
+        return new TablePartitioning(column, interval, Unit.MILLISECONDS);
+    }
+
+    /**
+     * Partition by a BigInt column holding epoch seconds
+     *
+     * @param column - Column name
+     * @param interval - Interval covered by each partition
+     * @return - TablePartitioning
+     */
+    public static TablePartitioning epochSeconds(final String column, final Interval interval) {
+        return new TablePartitioning(column, interval, Unit.SECONDS);
+    }
+
+    /**
+     * Drop partitions once every row they can hold is older than a number of intervals, 0 keeps every partition
+     *
+     * @param intervals - int
+     * @return - TablePartitioning
+     */
+    public final TablePartitioning retain(final int intervals) {
+        this.retention = Math.max(0, intervals);
+
+        return this;
+    }
+
+    /**
+     * Create partitions for a number of intervals past the current one, 3 by default
+     *
+     * @param intervals - int
+     * @return - TablePartitioning
+     */
+    public final TablePartitioning ahead(final int intervals) {
+        this.ahead = Math.max(1, intervals);
+
+        return this;
+    }
+
+    /**
+     * Convert a time to the value compared against the partition expression
+     *
+     * @param time - UTC time
+     * @return - Epoch seconds for Timestamp columns, otherwise in the unit of the column
+     */
+    public final long value(final ZonedDateTime time) {
+        final long millis = time.toInstant().toEpochMilli();
+
+        return this.unit == Unit.MILLISECONDS ? millis : TimeUnit.MILLISECONDS.toSeconds(millis);
+    }
+
+    /**
+     * @param start - Start of the interval held by the partition
+     * @return - Partition name
+     */
+    public final String name(final ZonedDateTime start) {
+        return "p" + this.interval.format.format(start);
+    }
+
+    /**
+     * Build the partitioning clause of the table, tables start with only the catch-all partition so the
+     * definition does not depend on when it was built
+     *
+     * @return - String
+     */
+    public final String asQuery() {
+        return this.asQuery(Collections.emptyList());
+    }
+
+    /**
+     * Build the partitioning clause of the table with ranged partitions ahead of the catch-all partition
+     *
+     * @param partitions - Partition definitions, oldest first
+     * @return - String
+     */
+    public final String asQuery(final List<String> partitions) {
+        final List<String> definitions = new ArrayList<>(partitions);
+        definitions.add("PARTITION `" + MAX_PARTITION + "` VALUES LESS THAN MAXVALUE");
+
+        return "PARTITION BY RANGE (" + (this.unit == Unit.TIMESTAMP ? "UNIX_TIMESTAMP(`" + this.column + "`)" : "`" + this.column + "`") + ") "
+                + "(" + String.join(", ", definitions) + ")";
+    }
+}
@@ -0,0 +1,90 @@
+package net.thenova.titan.module.sqldatabase.tables.shard;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class ConsistentHashShardFunction implements ShardFunction {
+
+    /* Points per shard on the ring, evens out the share of keys each shard gets */
+    private static final int VIRTUAL_NODES = 160;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private static final class Ring {
+        private final long[] points;
+        private final int[] owners;
+
+        private Ring(final List<String> shards) {
+            final int size = shards.size() * VIRTUAL_NODES;
+            final long[][] entries = new long[size][];
+            for(int i = 0; i < shards.size(); i++) {
+                for(int node = 0; node < VIRTUAL_NODES; node++) {
+                    entries[i * VIRTUAL_NODES + node] = new long[] {
+                            HASH.hashString(shards.get(i) + "#" + node, StandardCharsets.UTF_8).asLong(),
+                            i
+                    };
+                }
+            }
+            Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+
+            this.points = new long[size];
+            this.owners = new int[size];
+            for(int i = 0; i < size; i++) {
+                this.points[i] = entries[i][0];
+                this.owners[i] = (int) entries[i][1];
+            }
+        }
+
+        private int owner(final long hash) {
+            int index = Arrays.binarySearch(this.points, hash);
+            if(index < 0) {
+                index = -index - 1;
+            }
+
+            return this.owners[index == this.points.length ? 0 : index];
+        }
+    }
+
+    private final Map<List<String>, Ring> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public final int shard(final Object key, final List<String> shards) {
+        return this.rings.computeIfAbsent(new ArrayList<>(shards), Ring::new).owner(ConsistentHashShardFunction.hash(key));
+    }
+
+    private static long hash(final Object key) {
+        final Hasher hasher = HASH.newHasher();
+        if(key instanceof UUID) {
+            hasher.putLong(((UUID) key).getMostSignificantBits()).putLong(((UUID) key).getLeastSignificantBits());
+        } else if(key instanceof Number) {
+            hasher.putLong(((Number) key).longValue());
+        } else {
+            hasher.putString(String.valueOf(key), StandardCharsets.UTF_8);
+        }
+
+        return hasher.hash().asLong();
+    }
+}
@@ -0,0 +1,39 @@
+package net.thenova.titan.module.sqldatabase.tables.shard;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class DatabaseShard implements Database {
+
+    private final ShardedDatabase parent;
+    private final String shard;
+    private final int index;
+
+    @Override
+    public final String name() {
+        return this.parent.name() + ":" + this.shard;
+    }
+
+    @Override
+    public final String toString() {
+        return this.name();
+    }
+}
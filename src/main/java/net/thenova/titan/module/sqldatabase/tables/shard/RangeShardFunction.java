@@ -0,0 +1,63 @@
+package net.thenova.titan.module.sqldatabase.tables.shard;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class RangeShardFunction implements ShardFunction {
+
+    private final long[] bounds;
+
+    RangeShardFunction(final long[] bounds) {
+        this.bounds = bounds.clone();
+        Arrays.sort(this.bounds);
+
+        if(this.bounds.length == 0) {
+            throw new IllegalArgumentException("Range sharding requires at least one bound");
+        }
+        for(int i = 1; i < this.bounds.length; i++) {
+            if(this.bounds[i] == this.bounds[i - 1]) {
+                throw new IllegalArgumentException("Range sharding bound " + this.bounds[i] + " is given more than once");
+            }
+        }
+    }
+
+    @Override
+    public final void validate(final List<String> shards) {
+        if(shards.size() != this.bounds.length + 1) {
+            throw new IllegalArgumentException("Range sharding with " + this.bounds.length + " bounds requires "
+                    + (this.bounds.length + 1) + " shards, " + shards.size() + " are configured");
+        }
+    }
+
+    @Override
+    public final int shard(final Object key, final List<String> shards) {
+        if(!(key instanceof Number)) {
+            throw new IllegalArgumentException("Range sharding requires a numeric key, received " + key);
+        }
+
+        this.validate(shards);
+
+        final long value = ((Number) key).longValue();
+        int index = 0;
+        while(index < this.bounds.length && value >= this.bounds[index]) {
+            index++;
+        }
+
+        return index;
+    }
+}
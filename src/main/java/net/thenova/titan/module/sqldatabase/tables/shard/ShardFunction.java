@@ -0,0 +1,55 @@
+package net.thenova.titan.module.sqldatabase.tables.shard;
+
+import java.util.List;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface ShardFunction {
+
+    /**
+     * Consistent hashing, adding a shard only moves the keys that now belong to it
+     */
+    ShardFunction CONSISTENT_HASH = new ConsistentHashShardFunction();
+
+    /**
+     * Pick the shard of a key
+     *
+     * @param key - Shard key
+     * @param shards - Names of every configured shard, ordered by name
+     * @return - Index of the shard in shards
+     */
+    int shard(final Object key, final List<String> shards);
+
+    /**
+     * Check the configured shards can be used by this function, called once shards are loaded
+     *
+     * @param shards - Names of every configured shard, ordered by name
+     * @throws IllegalArgumentException - When the shards do not match the function
+     */
+    default void validate(final List<String> shards) {
+    }
+
+    /**
+     * Shard numeric keys by range, shard i holds keys below bounds[i] and the last shard holds the rest,
+     * so one more shard than bounds must be configured
+     *
+     * @param bounds - Ascending upper bounds, exclusive
+     * @return - ShardFunction
+     */
+    static ShardFunction range(final long... bounds) {
+        return new RangeShardFunction(bounds);
+    }
+}
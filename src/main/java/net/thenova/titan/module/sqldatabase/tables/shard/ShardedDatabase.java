@@ -0,0 +1,74 @@
+package net.thenova.titan.module.sqldatabase.tables.shard;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.thenova.titan.module.sqldatabase.sql.SQLConnectionHandler;
+import net.thenova.titan.module.sqldatabase.tables.Database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface ShardedDatabase extends Database {
+
+    /**
+     * Function picking the shard of a key, consistent hashing unless overridden
+     */
+    default ShardFunction shardFunction() {
+        return ShardFunction.CONSISTENT_HASH;
+    }
+
+    /**
+     * Return the shard holding a key, executors created for it use that shard's pool
+     *
+     * @param key - Shard key, such as a player UUID
+     * @return - Database of the shard, this database when no shards are configured
+     */
+    default Database shard(final Object key) {
+        return SQLConnectionHandler.INSTANCE.getShard(this, key);
+    }
+
+    /**
+     * @return - Every shard configured in database.json, ordered by name
+     */
+    default List<DatabaseShard> shards() {
+        return SQLConnectionHandler.INSTANCE.getShards(this);
+    }
+
+    /**
+     * Run a query on every shard in parallel and gather the results in shard order
+     *
+     * @param query - Creates the query for a shard, e.g. shard -> new SQLExecutor(shard).querySelect(...).resultList(type)
+     * @param <T> - Type of the results
+     * @return - Results of every shard, failed when any shard fails
+     */
+    default <T> ListenableFuture<List<T>> scatter(final Function<Database, ListenableFuture<List<T>>> query) {
+        return Futures.transform(Futures.allAsList(this.shards()
+                        .stream()
+                        .map(query)
+                        .collect(Collectors.toList())),
+                results -> {
+                    final List<T> gathered = new ArrayList<>();
+                    results.forEach(gathered::addAll);
+
+                    return gathered;
+                }, MoreExecutors.directExecutor());
+    }
+}